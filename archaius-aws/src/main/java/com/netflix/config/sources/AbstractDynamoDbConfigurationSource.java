@@ -20,16 +20,28 @@ import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.AWSCredentialsProvider;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputExceededException;
 import com.amazonaws.services.dynamodbv2.model.ScanRequest;
 import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.netflix.config.DynamicIntProperty;
 import com.netflix.config.DynamicLongProperty;
 import com.netflix.config.DynamicPropertyFactory;
 import com.netflix.config.DynamicStringProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * User: gorzell
@@ -48,6 +60,7 @@ public abstract class AbstractDynamoDbConfigurationSource <T> {
     static final String pollingMaxBackOffMsPropertyName = "com.netflix.config.dynamo.maxPollingBackOffMs";
     static final String pollingMinBackOffMsPropertyName = "com.netflix.config.dynamo.maxPollingBackOffMs";
     static final String maxRetryCountPropertyName = "com.netflix.config.dynamo.maxRetryCount";
+    static final String scanSegmentsPropertyName = "com.netflix.config.dynamo.scanSegments";
 
     //Property defaults
     static final String defaultTable = "archaiusProperties";
@@ -57,6 +70,34 @@ public abstract class AbstractDynamoDbConfigurationSource <T> {
     static final Long defaultMaxBackOffMs = 5 * 1000L;
     static final Long defaultMinBackOffMs = 500L;
     static final Long defaultMaxRetryCount = 100L;
+    static final int defaultScanSegments = 1;
+
+    //Threads shared by the parallel scans of all sources
+    private static final int scanThreads = 8;
+    private static final ThreadPoolExecutor scanExecutor = new ThreadPoolExecutor(scanThreads, scanThreads, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "dynamoDbScan");
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    static {
+        scanExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Turns the items read by {@link AbstractDynamoDbConfigurationSource#scanTable(String, ItemMapper)}
+     * into entries of the map of items.
+     */
+    protected interface ItemMapper<T> {
+        /**
+         * Add an item read from the table to the map of items.
+         */
+        void addItem(Map<String, T> propertyMap, Map<String, AttributeValue> item);
+    }
 
     //Dynamic Properties
     protected DynamicStringProperty tableName = DynamicPropertyFactory.getInstance()
@@ -73,6 +114,8 @@ public abstract class AbstractDynamoDbConfigurationSource <T> {
             .getLongProperty(pollingMinBackOffMsPropertyName, defaultMinBackOffMs);
     protected DynamicLongProperty maxRetryCount = DynamicPropertyFactory.getInstance()
             .getLongProperty(maxRetryCountPropertyName, defaultMaxRetryCount);
+    protected DynamicIntProperty scanSegments = DynamicPropertyFactory.getInstance()
+            .getIntProperty(scanSegmentsPropertyName, defaultScanSegments);
 
     protected AmazonDynamoDB dbClient;
 
@@ -134,6 +177,70 @@ public abstract class AbstractDynamoDbConfigurationSource <T> {
         }
     }
 
+    /**
+     * Scan the whole table and turn its items into a map with the given mapper. If the dynamic property
+     * {@value #scanSegmentsPropertyName} is more than 1, the table is scanned in that many segments in parallel,
+     * each backing off on its own when the provisioned throughput is exceeded, and the maps of the segments are
+     * merged in the order of the segments.
+     *
+     * @param table name of the table
+     * @param mapper adds each item read from the table to the map
+     * @return the map of all items
+     */
+    protected Map<String, T> scanTable(final String table, final ItemMapper<T> mapper) {
+        final int totalSegments = scanSegments.get();
+        if (totalSegments <= 1) {
+            return scanSegment(table, mapper, null, null);
+        }
+        List<Future<Map<String, T>>> futures = new ArrayList<Future<Map<String, T>>>(totalSegments);
+        try {
+            for (int i = 0; i < totalSegments; i++) {
+                final int segment = i;
+                futures.add(scanExecutor.submit(new Callable<Map<String, T>>() {
+                    @Override
+                    public Map<String, T> call() {
+                        return scanSegment(table, mapper, segment, totalSegments);
+                    }
+                }));
+            }
+            Map<String, T> propertyMap = new HashMap<String, T>();
+            for (Future<Map<String, T>> future : futures) {
+                propertyMap.putAll(future.get());
+            }
+            return propertyMap;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while scanning table " + table, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("Failed to scan table " + table, e.getCause());
+        } finally {
+            for (Future<Map<String, T>> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private Map<String, T> scanSegment(String table, ItemMapper<T> mapper, Integer segment, Integer totalSegments) {
+        Map<String, T> propertyMap = new HashMap<String, T>();
+        Map<String, AttributeValue> lastKeysEvaluated = null;
+        do {
+            ScanRequest scanRequest = new ScanRequest()
+                    .withTableName(table)
+                    .withSegment(segment)
+                    .withTotalSegments(totalSegments)
+                    .withExclusiveStartKey(lastKeysEvaluated);
+            ScanResult result = dbScanWithThroughputBackOff(scanRequest);
+            for (Map<String, AttributeValue> item : result.getItems()) {
+                mapper.addItem(propertyMap, item);
+            }
+            lastKeysEvaluated = result.getLastEvaluatedKey();
+        } while (lastKeysEvaluated != null);
+        return propertyMap;
+    }
+
     protected abstract Map<String, T> loadPropertiesFromTable(String table);
 
     //TODO Javadoc
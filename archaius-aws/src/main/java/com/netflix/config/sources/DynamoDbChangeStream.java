@@ -0,0 +1,127 @@
+/**
+ * Copyright 2014 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.config.sources;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The log of the changes made to the items of a DynamoDB table, such as a DynamoDB Stream, read by
+ * {@link DynamoDbStreamsConfigurationSource}. A position in the log is an opaque string, for example the
+ * sequence numbers reached in each shard of a stream, that is carried in the check point of the poll results.
+ * <p>
+ * <b>Experimental:</b> this is a service provider interface that applications implement. No implementation
+ * ships with Archaius, as the version of the AWS SDK it depends on has no DynamoDB Streams client. This
+ * interface may change once one is added.
+ */
+public interface DynamoDbChangeStream {
+
+    /**
+     * Type of a change, named after the event names of DynamoDB Streams.
+     */
+    enum EventType {
+        INSERT, MODIFY, REMOVE
+    }
+
+    /**
+     * A change to one item of the table.
+     */
+    class Record {
+        private final EventType eventType;
+        private final Map<String, AttributeValue> keys;
+        private final Map<String, AttributeValue> newImage;
+        private final Map<String, AttributeValue> oldImage;
+
+        /**
+         * @param eventType type of the change
+         * @param keys primary key attributes of the item
+         * @param newImage item after the change, null for a removal
+         * @param oldImage item before the change, null for an insertion or if the log does not keep it
+         */
+        public Record(EventType eventType, Map<String, AttributeValue> keys,
+                      Map<String, AttributeValue> newImage, Map<String, AttributeValue> oldImage) {
+            this.eventType = eventType;
+            this.keys = keys;
+            this.newImage = newImage;
+            this.oldImage = oldImage;
+        }
+
+        public EventType getEventType() {
+            return eventType;
+        }
+
+        public Map<String, AttributeValue> getKeys() {
+            return keys;
+        }
+
+        public Map<String, AttributeValue> getNewImage() {
+            return newImage;
+        }
+
+        public Map<String, AttributeValue> getOldImage() {
+            return oldImage;
+        }
+    }
+
+    /**
+     * Records read from the log, in the order the changes were made, and the position that follows them.
+     */
+    class Changes {
+        private final List<Record> records;
+        private final String nextPosition;
+
+        public Changes(List<Record> records, String nextPosition) {
+            this.records = records;
+            this.nextPosition = nextPosition;
+        }
+
+        public List<Record> getRecords() {
+            return records;
+        }
+
+        public String getNextPosition() {
+            return nextPosition;
+        }
+    }
+
+    /**
+     * Thrown when a position can no longer be read from, for example because the records after it have
+     * been trimmed from the stream or its shards have expired.
+     */
+    class ExpiredPositionException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        public ExpiredPositionException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * @return the position at the end of the log, from which the changes made from now on can be read
+     */
+    String getLatestPosition() throws Exception;
+
+    /**
+     * Read the changes made after a position.
+     *
+     * @param position position returned by {@link #getLatestPosition()} or by a previous call
+     * @return the changes, which are empty if nothing changed
+     * @throws ExpiredPositionException if the changes after the position are no longer available
+     */
+    Changes getChangesSince(String position) throws Exception;
+}
@@ -21,8 +21,6 @@ import com.amazonaws.auth.AWSCredentialsProvider;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
-import com.amazonaws.services.dynamodbv2.model.ScanRequest;
-import com.amazonaws.services.dynamodbv2.model.ScanResult;
 import com.netflix.config.DynamicPropertyFactory;
 import com.netflix.config.DynamicStringProperty;
 import com.netflix.config.PollResult;
@@ -30,7 +28,6 @@ import com.netflix.config.PolledConfigurationSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -42,6 +39,13 @@ import java.util.Map;
 public class DynamoDbConfigurationSource extends AbstractDynamoDbConfigurationSource<Object> implements PolledConfigurationSource {
     private static final Logger log = LoggerFactory.getLogger(DynamoDbConfigurationSource.class);
 
+    private final ItemMapper<Object> itemMapper = new ItemMapper<Object>() {
+        @Override
+        public void addItem(Map<String, Object> propertyMap, Map<String, AttributeValue> item) {
+            propertyMap.put(item.get(keyAttributeName.get()).getS(), item.get(valueAttributeName.get()).getS());
+        }
+    };
+
     public DynamoDbConfigurationSource() {
         super();
     }
@@ -72,19 +76,7 @@ public class DynamoDbConfigurationSource extends AbstractDynamoDbConfigurationSo
 
     @Override
     protected synchronized Map<String, Object> loadPropertiesFromTable(String table) {
-        Map<String, Object> propertyMap = new HashMap<String, Object>();
-        Map<String, AttributeValue> lastKeysEvaluated = null;
-        do {
-            ScanRequest scanRequest = new ScanRequest()
-                    .withTableName(table)
-                    .withExclusiveStartKey(lastKeysEvaluated);
-            ScanResult result = dbScanWithThroughputBackOff(scanRequest);
-            for (Map<String, AttributeValue> item : result.getItems()) {
-                propertyMap.put(item.get(keyAttributeName.get()).getS(), item.get(valueAttributeName.get()).getS());
-            }
-            lastKeysEvaluated = result.getLastEvaluatedKey();
-        } while (lastKeysEvaluated != null);
-        return propertyMap;
+        return scanTable(table, itemMapper);
     }
 
     @Override
@@ -18,6 +18,7 @@ package com.netflix.config.sources;
 import com.netflix.config.*;
 import org.apache.commons.configuration.AbstractConfiguration;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -46,20 +47,47 @@ public class DynamoDbDeploymentContextConfigurationSource implements PolledConfi
         this.contextKey = contextKey;
     }
 
+    /**
+     * Resolves this source's slice of the table cache.  Properties of the context key without a context value are
+     * overridden by those whose context value matches the deployment context.  When neither slice changed since the
+     * previous poll an empty incremental result is returned.
+     */
     @Override
     public PollResult poll(boolean initial, Object checkPoint) throws Exception {
-        Map<String, Object> map = new HashMap<String, Object>();
+        String contextValue = contextKey == null ? null : deploymentContext.getValue(contextKey);
+        Map<String, String> anyValue = tableCache.getProperties(contextKey, null);
+        Map<String, String> matchingValue = contextValue == null ? Collections.<String, String>emptyMap()
+                : tableCache.getProperties(contextKey, contextValue);
 
-        for(PropertyWithDeploymentContext prop: tableCache.getProperties()){
-            if(prop.getContextKey() == contextKey && prop.getContextValue() == null){
-                map.put(prop.getPropertyName(), prop.getPropertyValue());
-            }
-            else if(prop.getContextKey() == contextKey &&
-                    prop.getContextValue().equalsIgnoreCase(deploymentContext.getValue(contextKey))){
-                map.put(prop.getPropertyName(), prop.getPropertyValue());
-            }
+        SliceCheckPoint current = new SliceCheckPoint(anyValue, matchingValue);
+        if (!initial && current.sameAs(checkPoint)) {
+            return PollResult.createIncremental(null, null, null, checkPoint);
         }
 
-        return PollResult.createFull(map);
+        Map<String, Object> map = new HashMap<String, Object>(anyValue);
+        map.putAll(matchingValue);
+        return PollResult.createFull(map, current);
+    }
+
+    /**
+     * The slices a poll was built from.  The table cache keeps unchanged slices as the same instances across
+     * refreshes, so comparing by identity is enough.
+     */
+    private static final class SliceCheckPoint {
+        private final Map<String, String> anyValue;
+        private final Map<String, String> matchingValue;
+
+        SliceCheckPoint(Map<String, String> anyValue, Map<String, String> matchingValue) {
+            this.anyValue = anyValue;
+            this.matchingValue = matchingValue;
+        }
+
+        boolean sameAs(Object checkPoint) {
+            if (!(checkPoint instanceof SliceCheckPoint)) {
+                return false;
+            }
+            SliceCheckPoint other = (SliceCheckPoint) checkPoint;
+            return anyValue == other.anyValue && matchingValue == other.matchingValue;
+        }
     }
 }
\ No newline at end of file
@@ -21,19 +21,15 @@ import com.amazonaws.auth.AWSCredentialsProvider;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClient;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
-import com.amazonaws.services.dynamodbv2.model.ScanRequest;
-import com.amazonaws.services.dynamodbv2.model.ScanResult;
 import com.netflix.config.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.TimeUnit;
 
 /**
  * User: gorzell
@@ -42,6 +38,10 @@ import java.util.concurrent.TimeUnit;
  * This leverages some of the semantics of the PollingSource in order to have one place where the full table scan from
  * Dynamo is cached.  It is mean to be consumed but a number of DeploymentContext aware sources to keep them from all
  * having to load the table separately.
+ * <p>
+ * Each refresh also indexes the properties by context key and lower cased context value, so that a context aware source
+ * can look up its slice of the table directly.  A slice whose content did not change across a refresh keeps the same
+ * map instance, which lets consumers detect unchanged slices with an identity check.
  */
 public class DynamoDbDeploymentContextTableCache extends AbstractDynamoDbConfigurationSource<PropertyWithDeploymentContext> {
     private static Logger log = LoggerFactory.getLogger(DynamoDbDeploymentContextTableCache.class);
@@ -67,8 +67,27 @@ public class DynamoDbDeploymentContextTableCache extends AbstractDynamoDbConfigu
     private final int initialDelayMillis;
     private final int delayMillis;
 
-    private ScheduledExecutorService executor;
-    private volatile Map<String, PropertyWithDeploymentContext> cachedTable = new HashMap<String, PropertyWithDeploymentContext>();
+    private SharedPollingExecutor.Handle handle;
+    private volatile CachedTable cachedTable = new CachedTable(new HashMap<String, PropertyWithDeploymentContext>(), null);
+
+    private final ItemMapper<PropertyWithDeploymentContext> itemMapper = new ItemMapper<PropertyWithDeploymentContext>() {
+        @Override
+        public void addItem(Map<String, PropertyWithDeploymentContext> propertyMap, Map<String, AttributeValue> item) {
+            String keyVal = item.get(keyAttributeName.get()).getS();
+
+            //Need to deal with the fact that these attributes might not exist
+            DeploymentContext.ContextKey contextKey = item.containsKey(contextKeyAttributeName.get()) ? DeploymentContext.ContextKey.valueOf(item.get(contextKeyAttributeName.get()).getS()) : null;
+            String contextVal = item.containsKey(contextValueAttributeName.get()) ? item.get(contextValueAttributeName.get()).getS() : null;
+            String key = keyVal + ";" + contextKey + ";" + contextVal;
+            propertyMap.put(key,
+                    new PropertyWithDeploymentContext(
+                            contextKey,
+                            contextVal,
+                            keyVal,
+                            item.get(valueAttributeName.get()).getS()
+                    ));
+        }
+    };
 
 
     public DynamoDbDeploymentContextTableCache() {
@@ -205,29 +224,30 @@ public class DynamoDbDeploymentContextTableCache extends AbstractDynamoDbConfigu
     }
 
     private synchronized void schedule(Runnable runnable) {
-        executor = Executors.newScheduledThreadPool(1, new ThreadFactory() {
-            @Override
-            public Thread newThread(Runnable r) {
-                Thread t = new Thread(r, "pollingDynamoTableCache");
-                t.setDaemon(true);
-                return t;
-            }
-        });
-        executor.scheduleWithFixedDelay(runnable, initialDelayMillis, delayMillis, TimeUnit.MILLISECONDS);
+        handle = SharedPollingExecutor.scheduleWithFixedDelay("pollingDynamoTableCache[" + tableName.get() + "]", runnable,
+                initialDelayMillis, delayMillis);
+    }
+
+    /**
+     * @return the task polling the source table, which reports how often and how late it ran, or null if polling
+     *         has been stopped
+     */
+    public synchronized SharedPollingExecutor.Handle getHandle() {
+        return handle;
     }
 
     /**
      * Stop polling the source table
      */
-    public void stop() {
-        if (executor != null) {
-            executor.shutdown();
-            executor = null;
+    public synchronized void stop() {
+        if (handle != null) {
+            handle.cancel();
+            handle = null;
         }
     }
 
     private void start() {
-        cachedTable = loadPropertiesFromTable(tableName.get());
+        cachedTable = new CachedTable(loadPropertiesFromTable(tableName.get()), cachedTable);
         schedule(getPollingRunnable());
     }
 
@@ -237,7 +257,7 @@ public class DynamoDbDeploymentContextTableCache extends AbstractDynamoDbConfigu
                 log.debug("Dynamo cached polling started");
                 try {
                     Map<String, PropertyWithDeploymentContext> newMap = loadPropertiesFromTable(tableName.get());
-                    cachedTable = newMap;
+                    cachedTable = new CachedTable(newMap, cachedTable);
                 } catch (Throwable e) {
                     log.error("Error getting result from polling source", e);
                     return;
@@ -255,31 +275,7 @@ public class DynamoDbDeploymentContextTableCache extends AbstractDynamoDbConfigu
      */
     @Override
     protected Map<String, PropertyWithDeploymentContext> loadPropertiesFromTable(String table) {
-        Map<String, PropertyWithDeploymentContext> propertyMap = new HashMap<String, PropertyWithDeploymentContext>();
-        Map<String, AttributeValue> lastKeysEvaluated = null;
-        do {
-            ScanRequest scanRequest = new ScanRequest()
-                    .withTableName(table)
-                    .withExclusiveStartKey(lastKeysEvaluated);
-            ScanResult result = dbScanWithThroughputBackOff(scanRequest);
-            for (Map<String, AttributeValue> item : result.getItems()) {
-                String keyVal = item.get(keyAttributeName.get()).getS();
-
-                //Need to deal with the fact that these attributes might not exist
-                DeploymentContext.ContextKey contextKey = item.containsKey(contextKeyAttributeName.get()) ? DeploymentContext.ContextKey.valueOf(item.get(contextKeyAttributeName.get()).getS()) : null;
-                String contextVal = item.containsKey(contextValueAttributeName.get()) ? item.get(contextValueAttributeName.get()).getS() : null;
-                String key = keyVal + ";" + contextKey + ";" + contextVal;
-                propertyMap.put(key,
-                        new PropertyWithDeploymentContext(
-                                contextKey,
-                                contextVal,
-                                keyVal,
-                                item.get(valueAttributeName.get()).getS()
-                        ));
-            }
-            lastKeysEvaluated = result.getLastEvaluatedKey();
-        } while (lastKeysEvaluated != null);
-        return propertyMap;
+        return scanTable(table, itemMapper);
     }
 
     /**
@@ -288,6 +284,62 @@ public class DynamoDbDeploymentContextTableCache extends AbstractDynamoDbConfigu
      * @return
      */
     public Collection<PropertyWithDeploymentContext> getProperties() {
-        return cachedTable.values();
+        return cachedTable.properties.values();
+    }
+
+    /**
+     * Get the properties in the cache that have the given context key and context value, ignoring the case of the
+     * value.  The returned map is unmodifiable and remains the same instance until a refresh changes its content.
+     *
+     * @param contextKey the context key, or null for properties without a context key
+     * @param contextValue the context value, or null for properties that apply to any value of the context key
+     * @return map of property names to values, empty if there is no such property
+     */
+    public Map<String, String> getProperties(DeploymentContext.ContextKey contextKey, String contextValue) {
+        Map<String, Map<String, String>> byValue = cachedTable.index.get(contextKey);
+        Map<String, String> slice = byValue == null ? null : byValue.get(normalize(contextValue));
+        return slice == null ? Collections.<String, String>emptyMap() : slice;
+    }
+
+    private static String normalize(String contextValue) {
+        return contextValue == null ? null : contextValue.toLowerCase(Locale.ENGLISH);
+    }
+
+    /**
+     * A table scan together with its index by context key and normalized context value.
+     */
+    private static final class CachedTable {
+        private final Map<String, PropertyWithDeploymentContext> properties;
+        private final Map<DeploymentContext.ContextKey, Map<String, Map<String, String>>> index;
+
+        CachedTable(Map<String, PropertyWithDeploymentContext> properties, CachedTable previous) {
+            this.properties = properties;
+            this.index = new HashMap<DeploymentContext.ContextKey, Map<String, Map<String, String>>>();
+            for (PropertyWithDeploymentContext prop : properties.values()) {
+                Map<String, Map<String, String>> byValue = index.get(prop.getContextKey());
+                if (byValue == null) {
+                    byValue = new HashMap<String, Map<String, String>>();
+                    index.put(prop.getContextKey(), byValue);
+                }
+                String value = normalize(prop.getContextValue());
+                Map<String, String> slice = byValue.get(value);
+                if (slice == null) {
+                    slice = new HashMap<String, String>();
+                    byValue.put(value, slice);
+                }
+                slice.put(prop.getPropertyName(), prop.getPropertyValue());
+            }
+            for (Map.Entry<DeploymentContext.ContextKey, Map<String, Map<String, String>>> byValue : index.entrySet()) {
+                Map<String, Map<String, String>> previousByValue = previous == null ? null : previous.index.get(byValue.getKey());
+                for (Map.Entry<String, Map<String, String>> slice : byValue.getValue().entrySet()) {
+                    Map<String, String> previousSlice = previousByValue == null ? null : previousByValue.get(slice.getKey());
+                    if (previousSlice != null && previousSlice.equals(slice.getValue())) {
+                        slice.setValue(previousSlice);
+                    } else {
+                        slice.setValue(Collections.unmodifiableMap(slice.getValue()));
+                    }
+                }
+            }
+        }
     }
 }
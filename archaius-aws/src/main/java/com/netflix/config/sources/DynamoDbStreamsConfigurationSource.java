@@ -0,0 +1,126 @@
+/**
+ * Copyright 2014 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.config.sources;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.netflix.config.PollResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A Dynamo source that reads only the changed items from a {@link DynamoDbChangeStream}, such as a DynamoDB
+ * Stream of the table, instead of scanning the whole table on every poll.
+ * <p>
+ * The initial poll scans the table and returns a full result whose check point is the position the stream had
+ * before the scan started. The following polls read the changes made after the position they are given and
+ * return them as an incremental result, with the position that follows them as check point. Changes made while
+ * the table was scanned are read again, which is harmless as they are applied by value. The table is only
+ * scanned again if the position has expired or a change does not carry the new item.
+ * <p>
+ * <b>Experimental:</b> Archaius does not ship a {@link DynamoDbChangeStream} that reads DynamoDB Streams,
+ * because the version of the AWS SDK it depends on has no DynamoDB Streams client. To use this source,
+ * implement {@link DynamoDbChangeStream} on a stream reader of your own. This class and its interface
+ * may change once a reader is added.
+ */
+public class DynamoDbStreamsConfigurationSource extends DynamoDbConfigurationSource {
+    private static final Logger log = LoggerFactory.getLogger(DynamoDbStreamsConfigurationSource.class);
+
+    private final DynamoDbChangeStream changeStream;
+
+    public DynamoDbStreamsConfigurationSource(DynamoDbChangeStream changeStream) {
+        super();
+        this.changeStream = changeStream;
+    }
+
+    public DynamoDbStreamsConfigurationSource(AmazonDynamoDB dbClient, DynamoDbChangeStream changeStream) {
+        super(dbClient);
+        this.changeStream = changeStream;
+    }
+
+    @Override
+    public PollResult poll(boolean initial, Object checkPoint) throws Exception {
+        if (initial || !(checkPoint instanceof String)) {
+            return pollTable();
+        }
+        DynamoDbChangeStream.Changes changes;
+        try {
+            changes = changeStream.getChangesSince((String) checkPoint);
+        } catch (DynamoDbChangeStream.ExpiredPositionException e) {
+            log.warn("Position " + checkPoint + " of the change stream has expired, scanning the whole table", e);
+            return pollTable();
+        }
+        Map<String, Object> added = new HashMap<String, Object>();
+        Map<String, Object> changed = new HashMap<String, Object>();
+        Map<String, Object> deleted = new HashMap<String, Object>();
+        String keyAttribute = keyAttributeName.get();
+        String valueAttribute = valueAttributeName.get();
+        for (DynamoDbChangeStream.Record record : changes.getRecords()) {
+            if (record.getEventType() == DynamoDbChangeStream.EventType.REMOVE) {
+                String key = getString(record.getKeys(), keyAttribute);
+                if (key == null) {
+                    key = getString(record.getOldImage(), keyAttribute);
+                }
+                if (key == null) {
+                    log.warn("Removed item has no attribute " + keyAttribute + ", scanning the whole table");
+                    return pollTable();
+                }
+                added.remove(key);
+                changed.remove(key);
+                deleted.put(key, "");
+            } else {
+                String key = getString(record.getNewImage(), keyAttribute);
+                String value = getString(record.getNewImage(), valueAttribute);
+                if (key == null || value == null) {
+                    log.warn("Changed item has no attribute " + keyAttribute + " or " + valueAttribute
+                            + ", scanning the whole table");
+                    return pollTable();
+                }
+                // the last change of a key wins, and a key removed and inserted again is a change
+                if (record.getEventType() == DynamoDbChangeStream.EventType.INSERT && !deleted.containsKey(key)
+                        && !changed.containsKey(key)) {
+                    added.put(key, value);
+                } else {
+                    added.remove(key);
+                    changed.put(key, value);
+                }
+                deleted.remove(key);
+            }
+        }
+        log.debug("Read {} changes from the change stream", changes.getRecords().size());
+        return PollResult.createIncremental(added, changed, deleted, changes.getNextPosition());
+    }
+
+    private PollResult pollTable() throws Exception {
+        // the position is taken first so that no change made during the scan is missed
+        String position = changeStream.getLatestPosition();
+        String table = tableName.get();
+        Map<String, Object> map = loadPropertiesFromTable(table);
+        log.info("Successfully polled Dynamo for a new configuration based on table:" + table);
+        return PollResult.createFull(map, position);
+    }
+
+    private static String getString(Map<String, AttributeValue> item, String attribute) {
+        if (item == null) {
+            return null;
+        }
+        AttributeValue value = item.get(attribute);
+        return (value == null) ? null : value.getS();
+    }
+}
@@ -14,7 +14,6 @@ import java.io.InputStream;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Properties;
 
 /**
@@ -28,6 +27,10 @@ import java.util.Properties;
  * {@link java.util.Properties#load(InputStream)} for the obvious reasons
  * (file not found, bad credentials, no network connection, malformed file...)
  *
+ * The ETag of the retrieved object is returned as the check point. Subsequent
+ * polls only download the object if its ETag no longer matches, and otherwise
+ * return an incremental result without changes.
+ *
  * @author Michael Tandy
  */
 public class S3ConfigurationSource implements PolledConfigurationSource {
@@ -63,13 +66,20 @@ public class S3ConfigurationSource implements PolledConfigurationSource {
     @Override
     public PollResult poll(boolean initial, Object checkPoint) throws IOException, AmazonServiceException {
         GetObjectRequest s3request = new GetObjectRequest(bucketName, key);
+        if (!initial && checkPoint instanceof String) {
+            s3request.withNonmatchingETagConstraint((String) checkPoint);
+        }
         InputStream is = null;
         try {
 
             S3Object result = client.getObject(s3request);
+            if (result == null) {
+                // The ETag constraint was not met, so the object is unchanged
+                return PollResult.createIncremental(null, null, null, checkPoint);
+            }
             is = result.getObjectContent();
             Map<String,Object> resultMap = inputStreamToMap(is);
-            return PollResult.createFull(resultMap);
+            return PollResult.createFull(resultMap, result.getObjectMetadata().getETag());
 
         } finally {
             if (is!=null) is.close();
@@ -77,14 +87,20 @@ public class S3ConfigurationSource implements PolledConfigurationSource {
     }
 
     protected Map<String,Object> inputStreamToMap(InputStream is) throws IOException {
-        // Copied from URLConfigurationSource so behaviour is consistent.
-        URLConfigurationSource u;
-        Map<String, Object> map = new HashMap<String, Object>();
-        Properties props = new Properties();
+        return loadProperties(is);
+    }
+
+    static Map<String,Object> loadProperties(InputStream is) throws IOException {
+        // Parsed by Properties so behaviour is consistent with URLConfigurationSource,
+        // but each entry goes straight into the result map instead of the Properties table.
+        final Map<String, Object> map = new HashMap<String, Object>();
+        Properties props = new Properties() {
+            @Override
+            public synchronized Object put(Object key, Object value) {
+                return map.put((String) key, value);
+            }
+        };
         props.load(is);
-        for (Entry<Object, Object> entry : props.entrySet()) {
-            map.put((String) entry.getKey(), entry.getValue());
-        }
         return Collections.unmodifiableMap(map);
     }
 
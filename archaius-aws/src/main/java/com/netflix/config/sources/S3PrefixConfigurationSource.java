@@ -0,0 +1,281 @@
+/**
+ * Copyright 2014 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.config.sources;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3Client;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.netflix.config.PollResult;
+import com.netflix.config.PolledConfigurationSource;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A polled configuration source backed by all the objects under a prefix of an Amazon S3 bucket.
+ * Each object is decoded like {@link S3ConfigurationSource}, and the properties of all objects are
+ * merged in the order of their keys, so an object whose key sorts later overrides properties of
+ * the same name from earlier objects.
+ *
+ * Every poll lists the objects under the prefix and compares their ETags with those seen by the
+ * previous poll, which are carried in the check point. Only new or changed objects are downloaded,
+ * in parallel, and the poll returns an incremental result with the properties that were added,
+ * changed or deleted, including the properties of objects that were removed. The initial poll
+ * downloads every object and returns a full result.
+ *
+ * Poll requests throw exceptions in line with
+ * {@link com.amazonaws.services.s3.AmazonS3#listObjects(ListObjectsRequest)} and
+ * {@link com.amazonaws.services.s3.AmazonS3#getObject(GetObjectRequest)}.
+ */
+public class S3PrefixConfigurationSource implements PolledConfigurationSource {
+
+    //Threads shared by the downloads of all sources
+    private static final int fetchThreads = 8;
+    private static final ThreadPoolExecutor fetchExecutor = new ThreadPoolExecutor(fetchThreads, fetchThreads, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "s3ConfigFetch");
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    static {
+        fetchExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    private final AmazonS3 client;
+    private final String bucketName;
+    private final String prefix;
+    private final ExecutorService executor;
+
+    /**
+     * Create the instance with the specified credentials, bucket and prefix.
+     * Uses the default {@link com.amazonaws.services.s3.AmazonS3Client}.
+     * @param credentialsProvider
+     * @param bucketName The S3 bucket containing the configuration files.
+     * @param prefix The prefix of the keys of the files within that bucket.
+     */
+    public S3PrefixConfigurationSource(AWSCredentialsProvider credentialsProvider, String bucketName, String prefix) {
+        this(new AmazonS3Client(credentialsProvider), bucketName, prefix);
+    }
+
+    /**
+     * Create the instance with the provided {@link com.amazonaws.services.s3.AmazonS3},
+     * bucket and prefix. Objects are downloaded on a thread pool shared by all instances.
+     * @param client to be used to list and retrieve the objects.
+     * @param bucketName The S3 bucket containing the configuration files.
+     * @param prefix The prefix of the keys of the files within that bucket.
+     */
+    public S3PrefixConfigurationSource(AmazonS3 client, String bucketName, String prefix) {
+        this(client, bucketName, prefix, fetchExecutor);
+    }
+
+    /**
+     * Create the instance with the provided {@link com.amazonaws.services.s3.AmazonS3},
+     * bucket, prefix and the executor used to download changed objects in parallel.
+     * @param client to be used to list and retrieve the objects.
+     * @param bucketName The S3 bucket containing the configuration files.
+     * @param prefix The prefix of the keys of the files within that bucket.
+     * @param executor runs the downloads of a poll.
+     */
+    public S3PrefixConfigurationSource(AmazonS3 client, String bucketName, String prefix, ExecutorService executor) {
+        this.client = client;
+        this.bucketName = bucketName;
+        this.prefix = prefix;
+        this.executor = executor;
+    }
+
+    @Override
+    public PollResult poll(boolean initial, Object checkPoint) throws Exception {
+        Snapshot previous = !initial && checkPoint instanceof Snapshot ? (Snapshot) checkPoint : null;
+        Map<String, String> etags = listObjects();
+
+        List<String> changedKeys = new ArrayList<String>();
+        for (Map.Entry<String, String> entry : etags.entrySet()) {
+            S3ObjectProperties old = previous == null ? null : previous.objects.get(entry.getKey());
+            if (old == null || !old.etag.equals(entry.getValue())) {
+                changedKeys.add(entry.getKey());
+            }
+        }
+        List<String> removedKeys = new ArrayList<String>();
+        if (previous != null) {
+            for (String key : previous.objects.keySet()) {
+                if (!etags.containsKey(key)) {
+                    removedKeys.add(key);
+                }
+            }
+            if (changedKeys.isEmpty() && removedKeys.isEmpty()) {
+                return PollResult.createIncremental(null, null, null, previous);
+            }
+        }
+
+        Map<String, S3ObjectProperties> fetched = fetch(changedKeys, etags);
+        SortedMap<String, S3ObjectProperties> objects = new TreeMap<String, S3ObjectProperties>();
+        for (String key : etags.keySet()) {
+            S3ObjectProperties object = fetched.get(key);
+            objects.put(key, object != null ? object : previous.objects.get(key));
+        }
+        Snapshot current = new Snapshot(objects);
+        if (previous == null) {
+            return PollResult.createFull(current.properties, current);
+        }
+
+        // Only properties of changed or removed objects can differ from the previous poll
+        Set<String> affected = new HashSet<String>();
+        for (String key : changedKeys) {
+            S3ObjectProperties old = previous.objects.get(key);
+            if (old != null) {
+                affected.addAll(old.properties.keySet());
+            }
+            affected.addAll(objects.get(key).properties.keySet());
+        }
+        for (String key : removedKeys) {
+            affected.addAll(previous.objects.get(key).properties.keySet());
+        }
+        Map<String, Object> added = new HashMap<String, Object>();
+        Map<String, Object> changed = new HashMap<String, Object>();
+        Map<String, Object> deleted = new HashMap<String, Object>();
+        for (String name : affected) {
+            Object oldValue = previous.properties.get(name);
+            Object newValue = current.properties.get(name);
+            if (oldValue == null) {
+                if (newValue != null) {
+                    added.put(name, newValue);
+                }
+            } else if (newValue == null) {
+                deleted.put(name, oldValue);
+            } else if (!oldValue.equals(newValue)) {
+                changed.put(name, newValue);
+            }
+        }
+        return PollResult.createIncremental(added, changed, deleted, current);
+    }
+
+    /**
+     * List the objects under the prefix, skipping folder placeholders.
+     *
+     * @return map of object keys to ETags
+     */
+    private Map<String, String> listObjects() throws AmazonServiceException {
+        Map<String, String> etags = new HashMap<String, String>();
+        ObjectListing listing = client.listObjects(new ListObjectsRequest().withBucketName(bucketName).withPrefix(prefix));
+        while (true) {
+            for (S3ObjectSummary summary : listing.getObjectSummaries()) {
+                if (!summary.getKey().endsWith("/")) {
+                    etags.put(summary.getKey(), summary.getETag());
+                }
+            }
+            if (!listing.isTruncated()) {
+                return etags;
+            }
+            listing = client.listNextBatchOfObjects(listing);
+        }
+    }
+
+    /**
+     * Download the given objects in parallel. Each object keeps the ETag it was listed with, so that a change
+     * racing with this poll is picked up by the next one.
+     */
+    private Map<String, S3ObjectProperties> fetch(List<String> keys, final Map<String, String> etags) throws Exception {
+        List<Future<S3ObjectProperties>> futures = new ArrayList<Future<S3ObjectProperties>>(keys.size());
+        try {
+            for (final String key : keys) {
+                futures.add(executor.submit(new Callable<S3ObjectProperties>() {
+                    @Override
+                    public S3ObjectProperties call() throws Exception {
+                        return new S3ObjectProperties(etags.get(key), getProperties(key));
+                    }
+                }));
+            }
+            Map<String, S3ObjectProperties> objects = new HashMap<String, S3ObjectProperties>();
+            for (int i = 0; i < keys.size(); i++) {
+                objects.put(keys.get(i), futures.get(i).get());
+            }
+            return objects;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw new RuntimeException("Failed to get objects from bucket " + bucketName, e.getCause());
+        } finally {
+            for (Future<S3ObjectProperties> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private Map<String, Object> getProperties(String key) throws Exception {
+        InputStream is = null;
+        try {
+            S3Object result = client.getObject(new GetObjectRequest(bucketName, key));
+            is = result.getObjectContent();
+            return S3ConfigurationSource.loadProperties(is);
+        } finally {
+            if (is != null) is.close();
+        }
+    }
+
+    private static final class S3ObjectProperties {
+        private final String etag;
+        private final Map<String, Object> properties;
+
+        S3ObjectProperties(String etag, Map<String, Object> properties) {
+            this.etag = etag;
+            this.properties = properties;
+        }
+    }
+
+    /**
+     * The objects seen by a poll and their merged properties, used as the check point of the next poll.
+     */
+    private static final class Snapshot {
+        private final SortedMap<String, S3ObjectProperties> objects;
+        private final Map<String, Object> properties;
+
+        Snapshot(SortedMap<String, S3ObjectProperties> objects) {
+            this.objects = objects;
+            Map<String, Object> merged = new HashMap<String, Object>();
+            for (S3ObjectProperties object : objects.values()) {
+                merged.putAll(object.properties);
+            }
+            this.properties = Collections.unmodifiableMap(merged);
+        }
+    }
+}
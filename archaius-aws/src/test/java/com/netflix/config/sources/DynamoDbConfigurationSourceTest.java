@@ -16,14 +16,25 @@
 package com.netflix.config.sources;
 
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
 import com.netflix.config.ConfigurationManager;
 import com.netflix.config.PollResult;
 import org.junit.BeforeClass;
 import org.junit.Ignore;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.*;
 
 /**
@@ -66,4 +77,42 @@ public class DynamoDbConfigurationSourceTest {
         assertEquals("foo", result.getComplete().get("goo"));
         assertEquals("who", result.getComplete().get("boo"));
     }
+
+    @Test
+    public void testParallelScan() throws Exception {
+        AmazonDynamoDB mockBasicDbClient = mock(AmazonDynamoDB.class);
+        final List<ScanRequest> requests = Collections.synchronizedList(new ArrayList<ScanRequest>());
+        when(mockBasicDbClient.scan(any(ScanRequest.class))).thenAnswer(new Answer<ScanResult>() {
+            @Override
+            public ScanResult answer(InvocationOnMock invocation) {
+                ScanRequest request = (ScanRequest) invocation.getArguments()[0];
+                requests.add(request);
+                int segment = request.getSegment();
+                // each segment has two pages
+                boolean firstPage = request.getExclusiveStartKey() == null;
+                String key = "key" + segment + (firstPage ? "a" : "b");
+                Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+                item.put(DynamoDbMocks.defaultKeyAttribute, new AttributeValue().withS(key));
+                item.put(DynamoDbMocks.defaultValueAttribute, new AttributeValue().withS("value" + segment));
+                ScanResult result = new ScanResult().withItems(Collections.singletonList(item));
+                return firstPage ? result.withLastEvaluatedKey(item) : result;
+            }
+        });
+
+        ConfigurationManager.getConfigInstance().setProperty(AbstractDynamoDbConfigurationSource.scanSegmentsPropertyName, "3");
+        try {
+            DynamoDbConfigurationSource testConfigSource = new DynamoDbConfigurationSource(mockBasicDbClient);
+            PollResult result = testConfigSource.poll(false, null);
+            assertEquals(6, result.getComplete().size());
+            assertEquals("value0", result.getComplete().get("key0b"));
+            assertEquals("value2", result.getComplete().get("key2a"));
+            assertEquals(6, requests.size());
+            for (ScanRequest request : requests) {
+                assertEquals(Integer.valueOf(3), request.getTotalSegments());
+                assertTrue(request.getSegment() >= 0 && request.getSegment() < 3);
+            }
+        } finally {
+            ConfigurationManager.getConfigInstance().clearProperty(AbstractDynamoDbConfigurationSource.scanSegmentsPropertyName);
+        }
+    }
 }
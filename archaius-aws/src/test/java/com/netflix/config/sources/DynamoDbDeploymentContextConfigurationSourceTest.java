@@ -19,17 +19,18 @@ import com.netflix.config.ConfigurationBasedDeploymentContext;
 import com.netflix.config.ConfigurationManager;
 import com.netflix.config.DeploymentContext;
 import com.netflix.config.PollResult;
-import com.netflix.config.PropertyWithDeploymentContext;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
-import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.*;
 
 /**
@@ -39,21 +40,25 @@ import static org.mockito.Mockito.*;
  * You should write something useful here.
  */
 public class DynamoDbDeploymentContextConfigurationSourceTest {
-    private static Collection<PropertyWithDeploymentContext> propCollection1;
-    private static Collection<PropertyWithDeploymentContext> propCollection2;
+    private static Map<String, String> testSlice1;
+    private static Map<String, String> testSlice2;
+    private static Map<String, String> anySlice;
 
     @BeforeClass
     public static void setUpClass() throws Exception {
-        propCollection1 = new LinkedList<PropertyWithDeploymentContext>();
-        propCollection1.add(new PropertyWithDeploymentContext(DeploymentContext.ContextKey.environment, "test", "foo", "bar"));
-        propCollection1.add(new PropertyWithDeploymentContext(DeploymentContext.ContextKey.environment, "test", "goo", "goo"));
-        propCollection1.add(new PropertyWithDeploymentContext(DeploymentContext.ContextKey.environment, "test", "boo", "who"));
+        testSlice1 = new HashMap<String, String>();
+        testSlice1.put("foo", "bar");
+        testSlice1.put("goo", "goo");
+        testSlice1.put("boo", "who");
 
-        propCollection2 = new LinkedList<PropertyWithDeploymentContext>();
-        propCollection2.add(new PropertyWithDeploymentContext(DeploymentContext.ContextKey.environment, "test", "foo", "bar"));
-        propCollection2.add(new PropertyWithDeploymentContext(DeploymentContext.ContextKey.environment, "test", "goo", "boo"));
-        propCollection2.add(new PropertyWithDeploymentContext(DeploymentContext.ContextKey.environment, "prod", "goo", "foo"));
-        propCollection2.add(new PropertyWithDeploymentContext(DeploymentContext.ContextKey.environment, "test", "boo", "who"));
+        testSlice2 = new HashMap<String, String>();
+        testSlice2.put("foo", "bar");
+        testSlice2.put("goo", "boo");
+        testSlice2.put("boo", "who");
+
+        anySlice = new HashMap<String, String>();
+        anySlice.put("foo", "any");
+        anySlice.put("moo", "any");
 
         ConfigurationManager.getConfigInstance().setProperty(ConfigurationBasedDeploymentContext.DEPLOYMENT_ENVIRONMENT_PROPERTY, "test");
     }
@@ -65,7 +70,9 @@ public class DynamoDbDeploymentContextConfigurationSourceTest {
     @Test
     public void testPoll() throws Exception {
         DynamoDbDeploymentContextTableCache mockedCache = mock(DynamoDbDeploymentContextTableCache.class);
-        when(mockedCache.getProperties()).thenReturn(propCollection1, propCollection2);
+        when(mockedCache.getProperties(DeploymentContext.ContextKey.environment, null))
+                .thenReturn(Collections.<String, String>emptyMap());
+        when(mockedCache.getProperties(DeploymentContext.ContextKey.environment, "test")).thenReturn(testSlice1, testSlice2);
 
         DynamoDbDeploymentContextConfigurationSource testConfigSource =
                 new DynamoDbDeploymentContextConfigurationSource(mockedCache, DeploymentContext.ContextKey.environment);
@@ -76,10 +83,31 @@ public class DynamoDbDeploymentContextConfigurationSourceTest {
         assertEquals(result.getComplete().get("goo"), "goo");
         assertEquals(result.getComplete().get("boo"), "who");
 
-        result = testConfigSource.poll(false, null);
+        result = testConfigSource.poll(false, result.getCheckPoint());
         assertEquals(3, result.getComplete().size());
         assertEquals(result.getComplete().get("foo"),"bar");
         assertEquals(result.getComplete().get("goo"), "boo");
         assertEquals(result.getComplete().get("boo"), "who");
     }
+
+    @Test
+    public void testUnchangedSliceIsIncremental() throws Exception {
+        DynamoDbDeploymentContextTableCache mockedCache = mock(DynamoDbDeploymentContextTableCache.class);
+        when(mockedCache.getProperties(DeploymentContext.ContextKey.environment, null)).thenReturn(anySlice);
+        when(mockedCache.getProperties(DeploymentContext.ContextKey.environment, "test")).thenReturn(testSlice1);
+
+        DynamoDbDeploymentContextConfigurationSource testConfigSource =
+                new DynamoDbDeploymentContextConfigurationSource(mockedCache, DeploymentContext.ContextKey.environment);
+
+        PollResult result = testConfigSource.poll(true, null);
+        assertFalse(result.isIncremental());
+        assertEquals(4, result.getComplete().size());
+        assertEquals("bar", result.getComplete().get("foo"));
+        assertEquals("any", result.getComplete().get("moo"));
+
+        PollResult unchanged = testConfigSource.poll(false, result.getCheckPoint());
+        assertTrue(unchanged.isIncremental());
+        assertFalse(unchanged.hasChanges());
+        assertNull(unchanged.getComplete());
+    }
 }
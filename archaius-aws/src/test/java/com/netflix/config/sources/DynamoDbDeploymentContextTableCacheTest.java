@@ -22,8 +22,12 @@ import com.netflix.config.PropertyWithDeploymentContext;
 import org.junit.Test;
 
 import java.util.Collection;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.*;
 
@@ -78,4 +82,35 @@ public class DynamoDbDeploymentContextTableCacheTest {
         assertTrue(props.contains(test5));
         assertTrue(props.contains(test6));
     }
+
+    @Test
+    public void testIndexedSlices() throws Exception {
+        AmazonDynamoDB mockContextDbClient = mock(AmazonDynamoDB.class);
+
+        when(mockContextDbClient.scan(any(ScanRequest.class))).thenReturn(DynamoDbMocks.contextScanResult1,
+                DynamoDbMocks.contextScanResult2);
+        DynamoDbDeploymentContextTableCache cache = new DynamoDbDeploymentContextTableCache(mockContextDbClient, 100, 100);
+
+        Map<String, String> global = cache.getProperties(null, null);
+        Map<String, String> test = cache.getProperties(DeploymentContext.ContextKey.environment, "TEST");
+        assertEquals(1, global.size());
+        assertEquals("bar", global.get("foo"));
+        assertEquals(3, test.size());
+        assertEquals("goo", test.get("goo"));
+        assertTrue(cache.getProperties(DeploymentContext.ContextKey.environment, "prod").isEmpty());
+        assertTrue(cache.getProperties(DeploymentContext.ContextKey.region, null).isEmpty());
+
+        Thread.sleep(150);
+        assertEquals("pollingDynamoTableCache[archaiusProperties]", cache.getHandle().getName());
+        assertTrue(cache.getHandle().getRunCount() >= 1);
+        cache.stop();
+        assertNull(cache.getHandle());
+
+        assertSame(global, cache.getProperties(null, null));
+        Map<String, String> updatedTest = cache.getProperties(DeploymentContext.ContextKey.environment, "test");
+        assertNotSame(test, updatedTest);
+        assertEquals(3, updatedTest.size());
+        assertEquals("foo", updatedTest.get("goo"));
+        assertEquals("foo", cache.getProperties(DeploymentContext.ContextKey.environment, "prod").get("goo"));
+    }
 }
@@ -0,0 +1,128 @@
+/**
+ * Copyright 2014 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.config.sources;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.netflix.config.PollResult;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class DynamoDbStreamsConfigurationSourceTest {
+
+    /**
+     * A change stream kept in memory, whose positions are indexes in the list of records.
+     */
+    static class InMemoryChangeStream implements DynamoDbChangeStream {
+        private final List<Record> records = new ArrayList<Record>();
+        private int trimmed;
+
+        synchronized void put(String key, String value, boolean insert) {
+            Map<String, AttributeValue> keys = item(key, null);
+            records.add(new Record(insert ? EventType.INSERT : EventType.MODIFY, keys, item(key, value), null));
+        }
+
+        synchronized void remove(String key) {
+            records.add(new Record(EventType.REMOVE, item(key, null), null, null));
+        }
+
+        synchronized void trim() {
+            trimmed = records.size();
+        }
+
+        @Override
+        public synchronized String getLatestPosition() {
+            return String.valueOf(records.size());
+        }
+
+        @Override
+        public synchronized Changes getChangesSince(String position) throws ExpiredPositionException {
+            int start = Integer.parseInt(position);
+            if (start < trimmed) {
+                throw new ExpiredPositionException("trimmed");
+            }
+            return new Changes(new ArrayList<Record>(records.subList(start, records.size())), getLatestPosition());
+        }
+
+        private static Map<String, AttributeValue> item(String key, String value) {
+            Map<String, AttributeValue> item = new HashMap<String, AttributeValue>();
+            item.put(DynamoDbMocks.defaultKeyAttribute, new AttributeValue().withS(key));
+            if (value != null) {
+                item.put(DynamoDbMocks.defaultValueAttribute, new AttributeValue().withS(value));
+            }
+            return item;
+        }
+    }
+
+    @Test
+    public void testIncrementalPoll() throws Exception {
+        AmazonDynamoDB mockBasicDbClient = mock(AmazonDynamoDB.class);
+        when(mockBasicDbClient.scan(any(ScanRequest.class))).thenReturn(DynamoDbMocks.basicScanResult1);
+        InMemoryChangeStream stream = new InMemoryChangeStream();
+        stream.put("old", "value", true);
+        DynamoDbStreamsConfigurationSource source = new DynamoDbStreamsConfigurationSource(mockBasicDbClient, stream);
+
+        PollResult result = source.poll(true, null);
+        assertFalse(result.isIncremental());
+        assertEquals(3, result.getComplete().size());
+        assertEquals("1", result.getCheckPoint());
+
+        result = source.poll(false, result.getCheckPoint());
+        assertTrue(result.isIncremental());
+        assertFalse(result.hasChanges());
+
+        stream.put("new", "value", true);
+        stream.put("foo", "changed", false);
+        stream.remove("boo");
+        stream.put("temp", "value", true);
+        stream.remove("temp");
+        result = source.poll(false, result.getCheckPoint());
+        assertTrue(result.isIncremental());
+        assertEquals("value", result.getAdded().get("new"));
+        assertEquals(1, result.getAdded().size());
+        assertEquals("changed", result.getChanged().get("foo"));
+        assertEquals(1, result.getChanged().size());
+        assertTrue(result.getDeleted().containsKey("boo"));
+        assertTrue(result.getDeleted().containsKey("temp"));
+        assertEquals("6", result.getCheckPoint());
+        verify(mockBasicDbClient, times(1)).scan(any(ScanRequest.class));
+    }
+
+    @Test
+    public void testExpiredPositionFallsBackToScan() throws Exception {
+        AmazonDynamoDB mockBasicDbClient = mock(AmazonDynamoDB.class);
+        when(mockBasicDbClient.scan(any(ScanRequest.class))).thenReturn(DynamoDbMocks.basicScanResult1, DynamoDbMocks.basicScanResult2);
+        InMemoryChangeStream stream = new InMemoryChangeStream();
+        DynamoDbStreamsConfigurationSource source = new DynamoDbStreamsConfigurationSource(mockBasicDbClient, stream);
+
+        PollResult result = source.poll(true, null);
+        stream.put("goo", "foo", false);
+        stream.trim();
+        result = source.poll(false, result.getCheckPoint());
+        assertFalse(result.isIncremental());
+        assertEquals("foo", result.getComplete().get("goo"));
+        assertEquals("1", result.getCheckPoint());
+        verify(mockBasicDbClient, times(2)).scan(any(ScanRequest.class));
+    }
+}
@@ -17,6 +17,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.After;
 import static org.junit.Assert.*;
 import org.junit.Before;
@@ -29,6 +30,7 @@ public class S3ConfigurationSourceTest {
 
     HttpServer fakeS3;
     AmazonS3Client client;
+    final AtomicInteger downloads = new AtomicInteger();
 
     public S3ConfigurationSourceTest() {
     }
@@ -56,6 +58,24 @@ public class S3ConfigurationSourceTest {
         assertEquals(1,result.getComplete().size());
     }
 
+    @Test
+    public void testPoll_unchangedObjectIsNotDownloadedAgain() throws Exception {
+        S3ConfigurationSource instance = new S3ConfigurationSource(client, "bucketname", "standard-key.txt");
+        PollResult result = instance.poll(true, CHECK_POINT);
+        assertEquals("TEST-ETAG", result.getCheckPoint());
+        assertEquals(1, downloads.get());
+
+        PollResult unchanged = instance.poll(INITIAL, result.getCheckPoint());
+        assertTrue(unchanged.isIncremental());
+        assertFalse(unchanged.hasChanges());
+        assertEquals("TEST-ETAG", unchanged.getCheckPoint());
+        assertEquals(1, downloads.get());
+
+        PollResult changed = instance.poll(INITIAL, "OTHER-ETAG");
+        assertEquals("true", changed.getComplete().get("loaded"));
+        assertEquals(2, downloads.get());
+    }
+
     @Test(expected=AmazonServiceException.class)
     public void testPoll_fileNotFound() throws Exception {
         S3ConfigurationSource instance = new S3ConfigurationSource(client, "bucketname", "404.txt");
@@ -73,6 +93,13 @@ public class S3ConfigurationSourceTest {
         // create and register our handler
         httpServer.createContext("/bucketname/standard-key.txt",new HttpHandler() {
             public void handle(HttpExchange exchange) throws IOException {
+                String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+                if (ifNoneMatch != null && ifNoneMatch.replace("\"", "").equals("TEST-ETAG")) {
+                    exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_MODIFIED, -1);
+                    exchange.close();
+                    return;
+                }
+                downloads.incrementAndGet();
                 byte[] response = "loaded=true".getBytes("UTF-8");
                     // RFC 2616 says HTTP headers are case-insensitive - but the
                 // Amazon S3 client will crash if ETag has a different
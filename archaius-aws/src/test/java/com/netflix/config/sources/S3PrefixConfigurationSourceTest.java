@@ -0,0 +1,179 @@
+/**
+ * Copyright 2014 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.config.sources;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.netflix.config.PollResult;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class S3PrefixConfigurationSourceTest {
+
+    /**
+     * Backs a mocked {@link AmazonS3} with a map of object keys to contents. Listings are returned
+     * in pages of two objects.
+     */
+    static class InMemoryS3 {
+        final SortedMap<String, String> objects = new TreeMap<String, String>();
+        final List<String> downloads = Collections.synchronizedList(new ArrayList<String>());
+
+        AmazonS3 client() {
+            AmazonS3 client = mock(AmazonS3.class);
+            when(client.listObjects(any(ListObjectsRequest.class))).thenAnswer(new Answer<ObjectListing>() {
+                @Override
+                public ObjectListing answer(InvocationOnMock invocation) throws Throwable {
+                    ListObjectsRequest request = (ListObjectsRequest) invocation.getArguments()[0];
+                    return list(request.getBucketName(), request.getPrefix(), null);
+                }
+            });
+            when(client.listNextBatchOfObjects(any(ObjectListing.class))).thenAnswer(new Answer<ObjectListing>() {
+                @Override
+                public ObjectListing answer(InvocationOnMock invocation) throws Throwable {
+                    ObjectListing previous = (ObjectListing) invocation.getArguments()[0];
+                    return list(previous.getBucketName(), previous.getPrefix(), previous.getNextMarker());
+                }
+            });
+            when(client.getObject(any(GetObjectRequest.class))).thenAnswer(new Answer<S3Object>() {
+                @Override
+                public S3Object answer(InvocationOnMock invocation) throws Throwable {
+                    GetObjectRequest request = (GetObjectRequest) invocation.getArguments()[0];
+                    String content = objects.get(request.getKey());
+                    downloads.add(request.getKey());
+                    S3Object object = new S3Object();
+                    object.setKey(request.getKey());
+                    object.setObjectContent(new ByteArrayInputStream(content.getBytes("UTF-8")));
+                    return object;
+                }
+            });
+            return client;
+        }
+
+        private ObjectListing list(String bucketName, String prefix, String marker) {
+            ObjectListing listing = new ObjectListing();
+            listing.setBucketName(bucketName);
+            listing.setPrefix(prefix);
+            SortedMap<String, String> remaining = marker == null ? objects.tailMap(prefix) : objects.tailMap(marker + "\0");
+            for (Map.Entry<String, String> entry : remaining.entrySet()) {
+                if (!entry.getKey().startsWith(prefix)) {
+                    break;
+                }
+                if (listing.getObjectSummaries().size() == 2) {
+                    listing.setTruncated(true);
+                    break;
+                }
+                S3ObjectSummary summary = new S3ObjectSummary();
+                summary.setBucketName(bucketName);
+                summary.setKey(entry.getKey());
+                summary.setETag(Integer.toHexString(entry.getValue().hashCode()));
+                listing.getObjectSummaries().add(summary);
+                listing.setNextMarker(entry.getKey());
+            }
+            return listing;
+        }
+    }
+
+    private InMemoryS3 s3;
+    private S3PrefixConfigurationSource source;
+
+    @Before
+    public void setup() {
+        s3 = new InMemoryS3();
+        s3.objects.put("config/a.properties", "a=1\nshared=a");
+        s3.objects.put("config/b.properties", "b=2\nshared=b");
+        s3.objects.put("config/c.properties", "c=3");
+        s3.objects.put("config/folder/", "");
+        s3.objects.put("other/d.properties", "d=4");
+        source = new S3PrefixConfigurationSource(s3.client(), "bucketname", "config/");
+    }
+
+    @Test
+    public void testInitialPollMergesAllObjects() throws Exception {
+        PollResult result = source.poll(true, null);
+
+        assertFalse(result.isIncremental());
+        Map<String, Object> complete = result.getComplete();
+        assertEquals(4, complete.size());
+        assertEquals("1", complete.get("a"));
+        assertEquals("2", complete.get("b"));
+        assertEquals("3", complete.get("c"));
+        assertEquals("b", complete.get("shared"));
+        assertEquals(3, s3.downloads.size());
+    }
+
+    @Test
+    public void testUnchangedObjectsAreNotDownloaded() throws Exception {
+        PollResult result = source.poll(true, null);
+        s3.downloads.clear();
+
+        PollResult unchanged = source.poll(false, result.getCheckPoint());
+        assertTrue(unchanged.isIncremental());
+        assertFalse(unchanged.hasChanges());
+        assertSame(result.getCheckPoint(), unchanged.getCheckPoint());
+        assertTrue(s3.downloads.isEmpty());
+    }
+
+    @Test
+    public void testChangedObjectsAreReloadedIncrementally() throws Exception {
+        PollResult result = source.poll(true, null);
+        s3.downloads.clear();
+
+        s3.objects.put("config/a.properties", "a=10\nshared=a");
+        s3.objects.remove("config/b.properties");
+        s3.objects.put("config/e.properties", "e=5");
+
+        result = source.poll(false, result.getCheckPoint());
+        assertTrue(result.isIncremental());
+        assertEquals(2, s3.downloads.size());
+        assertTrue(s3.downloads.contains("config/a.properties"));
+        assertTrue(s3.downloads.contains("config/e.properties"));
+
+        assertEquals(1, result.getAdded().size());
+        assertEquals("5", result.getAdded().get("e"));
+        assertEquals(2, result.getChanged().size());
+        assertEquals("10", result.getChanged().get("a"));
+        assertEquals("a", result.getChanged().get("shared"));
+        assertEquals(1, result.getDeleted().size());
+        assertTrue(result.getDeleted().containsKey("b"));
+
+        s3.downloads.clear();
+        s3.objects.remove("config/c.properties");
+        result = source.poll(false, result.getCheckPoint());
+        assertTrue(s3.downloads.isEmpty());
+        assertTrue(result.getAdded().isEmpty());
+        assertTrue(result.getChanged().isEmpty());
+        assertEquals(Collections.singleton("c"), result.getDeleted().keySet());
+    }
+}
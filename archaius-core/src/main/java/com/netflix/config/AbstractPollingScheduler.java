@@ -15,17 +15,20 @@
  */
 package com.netflix.config;
 
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.concurrent.CopyOnWriteArrayList;
 
+import org.apache.commons.configuration.AbstractConfiguration;
 import org.apache.commons.configuration.Configuration;
+import org.apache.commons.configuration.event.ConfigurationEvent;
+import org.apache.commons.configuration.event.ConfigurationListener;
+import org.apache.commons.configuration.event.EventSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Objects;
 import com.netflix.config.PollListener.EventType;
 
 
@@ -44,6 +47,24 @@ public abstract class AbstractPollingScheduler {
     private volatile Object checkPoint;
     private static Logger log = LoggerFactory.getLogger(AbstractPollingScheduler.class);
     private DynamicPropertyUpdater propertyUpdater = new DynamicPropertyUpdater();
+    // source polled by the runnable given to the last call of schedule
+    private volatile PolledConfigurationSource polledSource;
+    // last full result applied and the configuration it was applied to, guarded by this
+    private Map<String, Object> lastFullResult;
+    private Configuration lastFullResultConfig;
+    // set when the configuration is changed by anything but this scheduler after the last full result was applied
+    private volatile boolean lastFullResultStale;
+    // thread applying a result, whose changes to the configuration are not out of band
+    private volatile Thread applyingThread;
+    private final ConfigurationListener outOfBandChangeListener = new BatchConfigurationListener() {
+        @Override
+        public void configurationChanged(ConfigurationEvent event) {
+            if (!event.isBeforeUpdate() && event.getType() != AbstractConfiguration.EVENT_READ_PROPERTY
+                    && Thread.currentThread() != applyingThread) {
+                lastFullResultStale = true;
+            }
+        }
+    };
     
     /**
      * @param ignoreDeletesFromSource true if deletes happened in the configuration source should be ignored 
@@ -73,14 +94,29 @@ public abstract class AbstractPollingScheduler {
      * @throws RuntimeException if any error occurs in polling the configuration source
      */
     protected synchronized void initialLoad(final PolledConfigurationSource source, final Configuration config) {      
-        PollResult result = null;
+        PollResult result = initialPoll(source);
+        applyInitialResult(result, config);
+    }
+
+    /**
+     * Do an initial poll from the source without applying the result to any configuration.
+     * 
+     * @param source source of the configuration
+     * @return the polled result
+     * @throws RuntimeException if any error occurs in polling the configuration source
+     */
+    PollResult initialPoll(final PolledConfigurationSource source) {
         try {
-            result = source.poll(true, null); 
+            PollResult result = source.poll(true, null); 
             checkPoint = result.getCheckPoint();
             fireEvent(EventType.POLL_SUCCESS, result, null);
+            return result;
         } catch (Throwable e) {
             throw new RuntimeException("Unable to load Properties source from " + source, e);
         }
+    }
+
+    private void applyInitialResult(final PollResult result, final Configuration config) {
         try {
             populateProperties(result, config);
         } catch (Throwable e) {                        
@@ -95,54 +131,99 @@ public abstract class AbstractPollingScheduler {
      * is false. If the polled result is incremental, properties added and changed in the partial result 
      * are set with the configuration, and deleted properties are deleted form configuration if ignoreDeletesFromSource
      * is false.
+     * <p>
+     * Once a full result has been applied, the next full result for the same configuration is compared with it
+     * and only the difference is applied. A full result identical to the previous one leaves the configuration
+     * untouched. The saved full result is discarded, so that the next full result is applied in whole and
+     * reconciles the configuration with the source, if an incremental result with changes is applied, a validator
+     * rejects any value of the result, or the configuration is changed by anything else than this scheduler.
+     * Only a configuration that is an {@link EventSource} can be watched for such changes, so full results
+     * applied to any other configuration are always applied in whole.
+     * <p>
+     * If the configuration is a {@link ConcurrentMapConfiguration}, the whole result is applied as one batch.
      * 
      * @param result Polled result from source
      */
-    protected void populateProperties(final PollResult result, final Configuration config) {
+    protected synchronized void populateProperties(final PollResult result, final Configuration config) {
         if (result == null || !result.hasChanges()) {
             return;
         }
-        if (!result.isIncremental()) {
-            Map<String, Object> props = result.getComplete();
-            if (props == null) {
+        Map<String, Object> complete = result.isIncremental() ? null : result.getComplete();
+        WatchedUpdateResult toApply = result;
+        if (complete != null && lastFullResult != null && config == lastFullResultConfig && !lastFullResultStale) {
+            toApply = getDifference(lastFullResult, complete);
+            if (toApply == null) {
+                log.debug("Polled result is unchanged since last poll");
                 return;
             }
-            for (Entry<String, Object> entry: props.entrySet()) {
-                propertyUpdater.addOrChangeProperty(entry.getKey(), entry.getValue(), config);
-            }
-            HashSet<String> existingKeys = new HashSet<String>();
-            for (Iterator<String> i = config.getKeys(); i.hasNext();) {
-                existingKeys.add(i.next());
-            }
-            if (!ignoreDeletesFromSource) {
-                for (String key: existingKeys) {
-                    if (!props.containsKey(key)) {
-                        propertyUpdater.deleteProperty(key, config);
-                    }
-                }
-            }
-        } else {
-            Map<String, Object> props = result.getAdded();
-            if (props != null) {
-                for (Entry<String, Object> entry: props.entrySet()) {
-                    propertyUpdater.addOrChangeProperty(entry.getKey(), entry.getValue(), config);
-                }
+        }
+        lastFullResult = null;
+        lastFullResultStale = false;
+        boolean allApplied;
+        applyingThread = Thread.currentThread();
+        try {
+            allApplied = propertyUpdater.applyProperties(toApply, config, ignoreDeletesFromSource);
+        } finally {
+            applyingThread = null;
+        }
+        if (complete != null && allApplied && watchForOutOfBandChanges(config)) {
+            lastFullResult = new HashMap<String, Object>(complete);
+        }
+    }
+
+    /**
+     * Registers a listener that marks the last full result as stale when the configuration is changed by
+     * anything else than this scheduler, and removes it from the previous configuration if it differs.
+     *
+     * @return false if the configuration cannot be watched
+     */
+    private boolean watchForOutOfBandChanges(Configuration config) {
+        if (config == lastFullResultConfig) {
+            return true;
+        }
+        if (lastFullResultConfig != null) {
+            ((EventSource) lastFullResultConfig).removeConfigurationListener(outOfBandChangeListener);
+            lastFullResultConfig = null;
+        }
+        if (!(config instanceof EventSource)) {
+            return false;
+        }
+        ((EventSource) config).addConfigurationListener(outOfBandChangeListener);
+        lastFullResultConfig = config;
+        return true;
+    }
+
+    /**
+     * Compute the changes from one full result to the next in a single pass over the new result.
+     * 
+     * @return the changes as an incremental result, or null if the two results have the same properties
+     */
+    private static WatchedUpdateResult getDifference(Map<String, Object> previous, Map<String, Object> current) {
+        Map<String, Object> added = new HashMap<String, Object>();
+        Map<String, Object> changed = new HashMap<String, Object>();
+        Map<String, Object> deleted = new HashMap<String, Object>();
+        for (Map.Entry<String, Object> entry: current.entrySet()) {
+            String key = entry.getKey();
+            Object value = entry.getValue();
+            if (!previous.containsKey(key)) {
+                added.put(key, value);
+            } else if (!Objects.equal(previous.get(key), value)) {
+                changed.put(key, value);
             }
-            props = result.getChanged();
-            if (props != null) {
-                for (Entry<String, Object> entry: props.entrySet()) {
-                    propertyUpdater.addOrChangeProperty(entry.getKey(), entry.getValue(), config);
+        }
+        // every key of the current result that is not added exists in the previous result,
+        // so there can only be deleted keys if the previous result has more keys than that
+        if (previous.size() > current.size() - added.size()) {
+            for (Map.Entry<String, Object> entry: previous.entrySet()) {
+                if (!current.containsKey(entry.getKey())) {
+                    deleted.put(entry.getKey(), entry.getValue());
                 }
             }
-            if (!ignoreDeletesFromSource) {
-                props = result.getDeleted();
-                if (props != null) {
-                    for (String name: props.keySet()) {
-                        propertyUpdater.deleteProperty(name, config);
-                    }
-                }            
-            }
         }
+        if (added.isEmpty() && changed.isEmpty() && deleted.isEmpty()) {
+            return null;
+        }
+        return WatchedUpdateResult.createIncremental(added, changed, deleted);
     }
     
     /**
@@ -199,8 +280,33 @@ public abstract class AbstractPollingScheduler {
     public void startPolling(final PolledConfigurationSource source, final Configuration config) {
         initialLoad(source, config);
         Runnable r = getPollingRunnable(source, config);
+        polledSource = source;
         schedule(r);
     }
+
+    /**
+     * Apply the result of an initial poll done by {@link #initialPoll(PolledConfigurationSource)} to the
+     * configuration and schedule the runnable.
+     * 
+     * @throws RuntimeException if any error occurs in applying the initial result
+     */
+    void startPolling(final PolledConfigurationSource source, final Configuration config, final PollResult initialResult) {
+        synchronized (this) {
+            applyInitialResult(initialResult, config);
+        }
+        Runnable r = getPollingRunnable(source, config);
+        polledSource = source;
+        schedule(r);
+    }
+
+    /**
+     * @return the name of the task polling the source, made of the given prefix and the source, so that the
+     *         sources polled on a shared executor can be told apart in logs
+     */
+    protected String getTaskName(String prefix) {
+        PolledConfigurationSource source = polledSource;
+        return (source == null) ? prefix : prefix + "[" + source + "]";
+    }
     
     /**
      * Add the PollLisetner 
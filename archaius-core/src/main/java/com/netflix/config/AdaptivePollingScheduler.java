@@ -0,0 +1,224 @@
+/**
+ * Copyright 2014 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.config;
+
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A polling scheduler that adapts the delay between polls to the behavior of the configuration source,
+ * so that many instances do not poll a source in lockstep or keep hammering a source that fails:
+ * <ul>
+ * <li>Every delay, including the initial one, is randomly moved up or down by a fraction of itself.
+ * <li>After each consecutive failed poll, the delay is doubled, up to the maximum delay.
+ * <li>After a poll that returns changes, the delay is halved, down to the minimum delay. After a poll
+ *     without changes, it grows by a quarter, up to the maximum delay. A full result counts as a change
+ *     only if its content differs from the previous full result.
+ * </ul>
+ * The bounds are read from dynamic properties whose names start with a prefix, {@value #DEFAULT_PROPERTY_PREFIX}
+ * by default, so they can be changed at runtime. As polling is scheduled while the configuration is being
+ * initialized, the dynamic properties are only created when the first poll runs, and the delay before the
+ * first poll is read from a system property instead:
+ * <ul>
+ * <li><code>&lt;prefix&gt;.initialDelayMills</code>: system property with the delay before the first poll,
+ *     30 seconds by default. The default jitter is applied to it.
+ * <li><code>&lt;prefix&gt;.delayMills</code>: delay the scheduler starts with, 60 seconds by default
+ * <li><code>&lt;prefix&gt;.minDelayMills</code>: lower bound of the delay, 10 seconds by default
+ * <li><code>&lt;prefix&gt;.maxDelayMills</code>: upper bound of the delay, 10 minutes by default
+ * <li><code>&lt;prefix&gt;.jitter</code>: fraction of the delay added or removed at random, 0.2 by default
+ * </ul>
+ */
+public class AdaptivePollingScheduler extends AbstractPollingScheduler {
+
+    /**
+     * Prefix of the dynamic properties used by the default constructor.
+     */
+    public static final String DEFAULT_PROPERTY_PREFIX = "archaius.adaptivePollingScheduler";
+
+    private static final long DEFAULT_INITIAL_DELAY = 30000;
+    private static final double DEFAULT_JITTER = 0.2;
+
+    private final String propertyPrefix;
+    private final Random random = new Random();
+    // guarded by this
+    private SharedPollingExecutor.Handle handle;
+    // incremented each time polling is scheduled or stopped, so that a run of a stopped schedule does not reschedule
+    private int generation;
+    // created on first use, as dynamic properties cannot be created while the configuration is being initialized
+    private volatile Bounds bounds;
+    // the fields below are only accessed by the polling thread
+    private long currentDelay = -1;
+    private int consecutiveFailures;
+    private boolean lastPollFailed;
+    private boolean lastPollChanged;
+    private int lastFullResultHash;
+    private boolean hasLastFullResult;
+
+    private static final class Bounds {
+        final DynamicLongProperty delay;
+        final DynamicLongProperty minDelay;
+        final DynamicLongProperty maxDelay;
+        final DynamicDoubleProperty jitter;
+
+        Bounds(String prefix) {
+            DynamicPropertyFactory factory = DynamicPropertyFactory.getInstance();
+            delay = factory.getLongProperty(prefix + ".delayMills", 60000);
+            minDelay = factory.getLongProperty(prefix + ".minDelayMills", 10000);
+            maxDelay = factory.getLongProperty(prefix + ".maxDelayMills", 600000);
+            jitter = factory.getDoubleProperty(prefix + ".jitter", DEFAULT_JITTER);
+        }
+    }
+
+    /**
+     * Create an instance that reads its bounds from the dynamic properties starting with
+     * {@value #DEFAULT_PROPERTY_PREFIX}. The scheduler will delete the property in a configuration
+     * if it is absent from the configuration source.
+     */
+    public AdaptivePollingScheduler() {
+        this(DEFAULT_PROPERTY_PREFIX, false);
+    }
+
+    /**
+     * @param propertyPrefix prefix of the dynamic properties that define the bounds of this scheduler
+     * @param ignoreDeletesFromSource whether the scheduler should ignore deletes of properties from configuration source when
+     * applying the polling result to a configuration.
+     */
+    public AdaptivePollingScheduler(String propertyPrefix, boolean ignoreDeletesFromSource) {
+        super(ignoreDeletesFromSource);
+        this.propertyPrefix = propertyPrefix;
+        addPollListener(new PollListener() {
+            @Override
+            public void handleEvent(EventType eventType, PollResult lastResult, Throwable exception) {
+                recordPoll(eventType, lastResult);
+            }
+        });
+    }
+
+    private Bounds getBounds() {
+        Bounds b = bounds;
+        if (b == null) {
+            b = new Bounds(propertyPrefix);
+            bounds = b;
+        }
+        return b;
+    }
+
+    void recordPoll(PollListener.EventType eventType, PollResult result) {
+        lastPollFailed = eventType == PollListener.EventType.POLL_FAILURE;
+        lastPollChanged = false;
+        if (result == null || !result.hasChanges()) {
+            return;
+        }
+        if (result.isIncremental()) {
+            lastPollChanged = true;
+            return;
+        }
+        Map<String, Object> complete = result.getComplete();
+        int hash = (complete == null) ? 0 : complete.hashCode();
+        lastPollChanged = !hasLastFullResult || hash != lastFullResultHash;
+        lastFullResultHash = hash;
+        hasLastFullResult = true;
+    }
+
+    /**
+     * Compute the delay until the next poll from the outcome of the last one, before jitter is applied.
+     */
+    long nextDelay() {
+        Bounds b = getBounds();
+        long min = b.minDelay.get();
+        long max = Math.max(min, b.maxDelay.get());
+        if (currentDelay < 0) {
+            currentDelay = b.delay.get();
+        }
+        if (lastPollFailed) {
+            consecutiveFailures++;
+            long backoff = currentDelay << Math.min(consecutiveFailures, 20);
+            return Math.min(max, Math.max(min, backoff));
+        }
+        consecutiveFailures = 0;
+        if (lastPollChanged) {
+            currentDelay = currentDelay / 2;
+        } else {
+            currentDelay = currentDelay + currentDelay / 4;
+        }
+        currentDelay = Math.min(max, Math.max(min, currentDelay));
+        return currentDelay;
+    }
+
+    /**
+     * Move the delay up or down by a random fraction of itself.
+     */
+    long applyJitter(long delay) {
+        return applyJitter(delay, getBounds().jitter.get());
+    }
+
+    private long applyJitter(long delay, double jitter) {
+        jitter = Math.min(1, Math.max(0, jitter));
+        double factor;
+        synchronized (random) {
+            factor = 1 + jitter * (2 * random.nextDouble() - 1);
+        }
+        return (long) (delay * factor);
+    }
+
+    /**
+     * Schedule the runnable once on the {@link SharedPollingExecutor}, and again after each run with the
+     * delay computed from the outcome of the poll. A runnable scheduled before is cancelled.
+     */
+    @Override
+    protected synchronized void schedule(final Runnable runnable) {
+        stop();
+        long initialDelay = Long.getLong(propertyPrefix + ".initialDelayMills", DEFAULT_INITIAL_DELAY);
+        scheduleNext(runnable, applyJitter(initialDelay, DEFAULT_JITTER), generation);
+    }
+
+    private synchronized void scheduleNext(final Runnable runnable, long delayMillis, final int scheduleGeneration) {
+        if (scheduleGeneration != generation) {
+            return;
+        }
+        if (handle != null) {
+            handle.reschedule(delayMillis);
+            return;
+        }
+        handle = SharedPollingExecutor.schedule(getTaskName("adaptivePollingConfigurationSource"), new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    runnable.run();
+                } finally {
+                    scheduleNext(runnable, applyJitter(nextDelay()), scheduleGeneration);
+                }
+            }
+        }, delayMillis);
+    }
+
+    /**
+     * @return the task polling the source, which is rescheduled after each poll and reports how often and how
+     *         late it ran, or null if polling is not scheduled
+     */
+    public synchronized SharedPollingExecutor.Handle getHandle() {
+        return handle;
+    }
+
+    @Override
+    public synchronized void stop() {
+        generation++;
+        if (handle != null) {
+            handle.cancel();
+            handle = null;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+/**
+ * Copyright 2014 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.config;
+
+import org.apache.commons.configuration.event.ConfigurationListener;
+
+/**
+ * A {@link ConfigurationListener} that understands {@link ConcurrentMapConfiguration#EVENT_BATCH_UPDATE}
+ * events. {@link ConcurrentMapConfiguration} notifies a listener of this type of a batch of changes with a
+ * single event, and any other listener with one event per property, as if every property had been set or
+ * cleared individually.
+ */
+public interface BatchConfigurationListener extends ConfigurationListener {
+}
@@ -0,0 +1,36 @@
+/**
+ * Copyright 2014 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.config;
+
+import java.util.Map;
+
+/**
+ * A {@link PropertyListener} that can handle a batch of property changes at once.
+ * {@link ExpandedConfigurationListenerAdapter} calls {@link #propertiesChanged(Object, Map)} for a
+ * batch of changes instead of calling {@link #setProperty(Object, String, Object, boolean)} and
+ * {@link #clearProperty(Object, String, Object, boolean)} once per property.
+ */
+public interface BatchPropertyListener extends PropertyListener {
+
+    /**
+     * <p>Notifies this listener about a batch of properties that have been set or cleared.</p>
+     *
+     * @param source the event source.
+     * @param changes map of the property names to their new values, or to null for the
+     *        properties that were cleared.
+     */
+    public void propertiesChanged(Object source, Map<String, Object> changes);
+}
@@ -47,7 +47,7 @@ public class CachedDynamicBooleanProperty extends DynamicBooleanProperty {
      * @return
      */
     protected boolean chooseValue() {
-        return prop.getBoolean(defaultValue).booleanValue();
+        return prop.getBooleanValue(defaultValue.booleanValue());
     }
 
     /**
@@ -47,7 +47,7 @@ public class CachedDynamicDoubleProperty extends DynamicDoubleProperty {
      * @return
      */
     protected double chooseValue() {
-        return prop.getDouble(defaultValue).doubleValue();
+        return prop.getDoubleValue(defaultValue.doubleValue());
     }
 
     /**
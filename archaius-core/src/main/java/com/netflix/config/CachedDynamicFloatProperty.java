@@ -47,7 +47,7 @@ public class CachedDynamicFloatProperty extends DynamicFloatProperty {
      * @return
      */
     protected float chooseValue() {
-        return prop.getFloat(defaultValue).floatValue();
+        return prop.getFloatValue(defaultValue.floatValue());
     }
 
     /**
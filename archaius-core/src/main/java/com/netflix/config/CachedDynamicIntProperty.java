@@ -47,7 +47,7 @@ public class CachedDynamicIntProperty extends DynamicIntProperty {
      * @return
      */
     protected int chooseValue() {
-        return prop.getInteger(defaultValue).intValue();
+        return prop.getIntValue(defaultValue.intValue());
     }
 
     /**
@@ -47,7 +47,7 @@ public class CachedDynamicLongProperty extends DynamicLongProperty {
      * @return
      */
     protected long chooseValue() {
-        return prop.getLong(defaultValue).longValue();
+        return prop.getLongValue(defaultValue.longValue());
     }
 
     /**
@@ -19,12 +19,15 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.ConcurrentModificationException;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -40,6 +43,8 @@ import org.apache.commons.configuration.event.ConfigurationListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.netflix.config.validation.ValidationException;
+
 
 /**
  * This class maintains a hierarchy of configurations in a list structure. The order of the list stands for the descending
@@ -65,6 +70,16 @@ import org.slf4j.LoggerFactory;
  * {@link ConcurrentMapConfiguration} or ConcurrentCompositeConfiguration using 
  * {@link com.netflix.config.util.ConfigurationUtils} to achieve
  * maximal performance and thread safety.
+ * <p>
+ * As long as the override configuration and every child configuration are
+ * {@link ConcurrentMapConfiguration}s that report their changes to this configuration,
+ * the winning value of every key is kept in an index that is updated from the
+ * events fired by the child configurations. {@link #getProperty(String)}, {@link #containsKey(String)}
+ * and {@link #getSource(String)} are then a single map lookup, and the whole index is only
+ * rebuilt when the list of configurations changes, a child configuration is cleared or
+ * a child fires {@link #EVENT_CONFIGURATION_SOURCE_CHANGED}. If any child configuration
+ * may change without firing events, the index is dropped and these methods go
+ * through the list of configurations instead.
  * 
  * <p>
  * Example:
@@ -124,10 +139,48 @@ public class ConcurrentCompositeConfiguration extends ConcurrentMapConfiguration
      */
     private volatile boolean containerConfigurationChanged = true;
 
-    private ConfigurationListener eventPropagater = new ConfigurationListener() {
+    /**
+     * The value of a key and the configuration it comes from.
+     */
+    private static final class ResolvedProperty {
+        private final Configuration source;
+        private final Object value;
+
+        ResolvedProperty(Configuration source, Object value) {
+            this.source = source;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Winning value of every key across the override configuration and
+     * the list of configurations, or null if the configurations cannot be indexed.
+     */
+    private volatile Map<String, ResolvedProperty> resolvedProperties;
+
+    /**
+     * Serializes updates to {@link #resolvedProperties}.
+     */
+    private final Object indexLock = new Object();
+
+    private final EventPropagater eventPropagater = new EventPropagater();
+
+    /**
+     * Listens to the sub configurations, keeps the index up to date and propagates
+     * their events to the listeners of this configuration.
+     */
+    private class EventPropagater implements BatchConfigurationListener {
+        @SuppressWarnings("unchecked")
         @Override
         public void configurationChanged(ConfigurationEvent event) {
             boolean beforeUpdate = event.isBeforeUpdate();
+            Set<String> addedKeys = Collections.emptySet();
+            if (!beforeUpdate) {
+                if (event.getType() == EVENT_BATCH_UPDATE) {
+                    addedKeys = getUnresolvedKeys(((Map<String, Object>) event.getPropertyValue()).keySet());
+                }
+                updateIndex(event);
+            }
             if (propagateEventToParent) {
                 int type = event.getType();
                 String name = event.getPropertyName();
@@ -162,13 +215,27 @@ public class ConcurrentCompositeConfiguration extends ConcurrentMapConfiguration
                         fireEvent(EVENT_SET_PROPERTY, name, finalValue, beforeUpdate);
                     }
                     break;
+                case EVENT_BATCH_UPDATE:
+                    Map<String, Object> changes = getWinningChanges(
+                            (AbstractConfiguration) event.getSource(), (Map<String, Object>) value);
+                    if (!changes.isEmpty()) {
+                        fireBatchEvent(changes, addedKeys);
+                    }
+                    break;
                 default:
                     break;
 
                 }
             }            
         }        
-    };
+
+        /**
+         * Called by a sub configuration when whether it can be indexed may have changed.
+         */
+        void subConfigurationIndexChanged() {
+            rebuildIndex();
+        }
+    }
     
     /**
      * Creates an empty CompositeConfiguration object which can then
@@ -345,6 +412,7 @@ public class ConcurrentCompositeConfiguration extends ConcurrentMapConfiguration
         containerConfigurationChanged = true;
         configList.remove(containerConfiguration);
         configList.add(newIndex, containerConfiguration);
+        rebuildIndex();
     }
         
     /**
@@ -361,6 +429,7 @@ public class ConcurrentCompositeConfiguration extends ConcurrentMapConfiguration
                 namedConfigurations.put(name, config);
             }
             config.addConfigurationListener(eventPropagater);
+            rebuildIndex();
             fireEvent(EVENT_CONFIGURATION_SOURCE_CHANGED, null, null, false);
         } else {
             logger.warn(config + " is not added as it already exits");
@@ -387,7 +456,9 @@ public class ConcurrentCompositeConfiguration extends ConcurrentMapConfiguration
             if (configName != null) {
                 namedConfigurations.remove(configName);
             }
-            return configList.remove(config);
+            boolean removed = configList.remove(config);
+            rebuildIndex();
+            return removed;
         } else {
             throw new IllegalArgumentException("Can't remove container configuration");
         }
@@ -399,6 +470,7 @@ public class ConcurrentCompositeConfiguration extends ConcurrentMapConfiguration
         if (nameFound != null) {
             namedConfigurations.remove(nameFound);
         }
+        rebuildIndex();
         return config;
     }
 
@@ -416,6 +488,7 @@ public class ConcurrentCompositeConfiguration extends ConcurrentMapConfiguration
         {
             configList.remove(conf);
             namedConfigurations.remove(name);
+            rebuildIndex();
         } else if (conf != null && conf.equals(containerConfiguration)) {
             throw new IllegalArgumentException("Can't remove container configuration");
         }
@@ -455,12 +528,39 @@ public class ConcurrentCompositeConfiguration extends ConcurrentMapConfiguration
         overrideProperties.setListDelimiter(getListDelimiter());
         overrideProperties.setDelimiterParsingDisabled(isDelimiterParsingDisabled());
         overrideProperties.addConfigurationListener(eventPropagater);
+        rebuildIndex();
         
         fireEvent(EVENT_CLEAR, null, null, false);
         containerConfigurationChanged = false;
         invalidate();
     }
 
+    /**
+     * Apply the batch of changes to the <em>container configuration</em>.
+     * <b>Warning: </b>{@link #getProperty(String)} on these keys may not reflect the changes
+     * if there is any other configuration that contain the same properties and is in front of the
+     * <em>container configuration</em> in the configurations list.
+     */
+    @Override
+    public boolean applyChanges(Map<String, ?> propertiesToSet, Collection<String> propertiesToClear) {
+        if (containerConfiguration instanceof ConcurrentMapConfiguration) {
+            return ((ConcurrentMapConfiguration) containerConfiguration).applyChanges(propertiesToSet, propertiesToClear);
+        }
+        boolean allApplied = true;
+        for (Map.Entry<String, ?> entry: propertiesToSet.entrySet()) {
+            try {
+                containerConfiguration.setProperty(entry.getKey(), entry.getValue());
+            } catch (ValidationException e) {
+                logger.warn("Validation failed for property " + entry.getKey(), e);
+                allApplied = false;
+            }
+        }
+        for (String key: propertiesToClear) {
+            containerConfiguration.clearProperty(key);
+        }
+        return allApplied;
+    }
+
     /**
      * Override the same property in any other configurations in the list.
      */
@@ -521,6 +621,11 @@ public class ConcurrentCompositeConfiguration extends ConcurrentMapConfiguration
      */
     public Object getProperty(String key)
     {
+        Map<String, ResolvedProperty> index = resolvedProperties;
+        if (index != null) {
+            ResolvedProperty resolved = index.get(key);
+            return (resolved == null) ? null : resolved.value;
+        }
         if (overrideProperties.containsKey(key)) {
             return overrideProperties.getProperty(key);
         }
@@ -545,35 +650,98 @@ public class ConcurrentCompositeConfiguration extends ConcurrentMapConfiguration
     }
 
     /**
-     * Get all the keys contained by sub configurations.
+     * Get all the keys contained by sub configurations, the keys of the override configuration
+     * first and then those of the configurations in the list in their order. The keys are not
+     * copied: they are merged as the iterator advances, and a key is skipped if a configuration
+     * that precedes the one being iterated contains it, which is looked up in the index of winning
+     * values when there is one.
+     * <p>
+     * Like the iterators of {@link ConcurrentHashMap}, the iterator is weakly consistent: it
+     * never throws {@link ConcurrentModificationException} for changes made to map based
+     * configurations while it is in use, and may or may not reflect those changes.
      * 
      * @throws ConcurrentModificationException if concurrent modification happens on any sub configuration
-     * when it is iterated to get all the keys
+     * that is not thread safe when it is iterated to get all the keys
      * 
      */
     public Iterator<String> getKeys() throws ConcurrentModificationException
     {
-        Set<String> keys = new LinkedHashSet<String>();
-        for (Iterator<String> it = overrideProperties.getKeys(); it.hasNext();) {
-            keys.add(it.next());
+        List<Configuration> configs = new ArrayList<Configuration>(configList.size() + 1);
+        configs.add(overrideProperties);
+        configs.addAll(configList);
+        return new MergedKeysIterator(configs, resolvedProperties);
+    }
+
+    /**
+     * Iterates the keys of a list of configurations, skipping the keys that are contained
+     * by a configuration preceding the one that is iterated.
+     */
+    private final class MergedKeysIterator implements Iterator<String> {
+        private final List<Configuration> configs;
+        private final Map<String, ResolvedProperty> index;
+        private int current = -1;
+        private Iterator<String> keys = Collections.<String>emptyList().iterator();
+        private String next;
+
+        MergedKeysIterator(List<Configuration> configs, Map<String, ResolvedProperty> index) {
+            this.configs = configs;
+            this.index = index;
         }
-        for (Configuration config : configList)
-        {
-            for (Iterator<String> it = config.getKeys(); it.hasNext();)
-            {
-                try {
-                    keys.add(it.next());
-                } catch (ConcurrentModificationException e) {
-                    logger.error("unexpected exception when iterating the keys for configuration " + config 
-                            + " with name " + getNameForConfiguration(config));
-                    throw e;
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                if (keys.hasNext()) {
+                    String key;
+                    try {
+                        key = keys.next();
+                    } catch (ConcurrentModificationException e) {
+                        Configuration config = configs.get(current);
+                        logger.error("unexpected exception when iterating the keys for configuration " + config 
+                                + " with name " + getNameForConfiguration(config));
+                        throw e;
+                    }
+                    if (!isContainedBefore(key)) {
+                        next = key;
+                    }
+                } else if (current + 1 < configs.size()) {
+                    current++;
+                    keys = configs.get(current).getKeys();
+                } else {
+                    return false;
                 }
             }
+            return true;
         }
 
-        return keys.iterator();
-    }
+        private boolean isContainedBefore(String key) {
+            if (index != null) {
+                ResolvedProperty resolved = index.get(key);
+                return resolved != null && resolved.source != configs.get(current);
+            }
+            for (int i = 0; i < current; i++) {
+                if (configs.get(i).containsKey(key)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String key = next;
+            next = null;
+            return key;
+        }
 
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
     
     private String getNameForConfiguration(Configuration config) {
         for (Map.Entry<String, AbstractConfiguration> entry: namedConfigurations.entrySet()) {
@@ -648,6 +816,10 @@ public class ConcurrentCompositeConfiguration extends ConcurrentMapConfiguration
     @Override
     public boolean containsKey(String key)
     {
+        Map<String, ResolvedProperty> index = resolvedProperties;
+        if (index != null) {
+            return index.containsKey(key);
+        }
         if (overrideProperties.containsKey(key)) {
             return true;
         }
@@ -784,6 +956,7 @@ public class ConcurrentCompositeConfiguration extends ConcurrentMapConfiguration
             ConcurrentCompositeConfiguration copy = (ConcurrentCompositeConfiguration) super
                     .clone();
             copy.clearConfigurationListeners();
+            copy.resolvedProperties = null;
             copy.configList = new LinkedList<AbstractConfiguration>();
             copy.containerConfiguration = (AbstractConfiguration) ConfigurationUtils
                     .cloneConfiguration(getContainerConfiguration());
@@ -797,6 +970,7 @@ public class ConcurrentCompositeConfiguration extends ConcurrentMapConfiguration
                             .cloneConfiguration(config));
                 }
             }
+            copy.rebuildIndex();
 
             return copy;
         }
@@ -855,6 +1029,11 @@ public class ConcurrentCompositeConfiguration extends ConcurrentMapConfiguration
             throw new IllegalArgumentException("Key must not be null!");
         }
 
+        Map<String, ResolvedProperty> index = resolvedProperties;
+        if (index != null) {
+            ResolvedProperty resolved = index.get(key);
+            return (resolved == null) ? null : resolved.source;
+        }
         if (overrideProperties.containsKey(key)) {
             return overrideProperties;
         }
@@ -869,6 +1048,195 @@ public class ConcurrentCompositeConfiguration extends ConcurrentMapConfiguration
         return null;
     }
 
+    /**
+     * Whether the winning value of every key can be tracked from events, i.e.
+     * the override configuration and all configurations in the list are
+     * {@link ConcurrentMapConfiguration}s that fire an event for every change
+     * and report them to this configuration. A nested composite configuration
+     * qualifies only if it propagates the events of its sub configurations and
+     * is indexed itself.
+     */
+    private boolean isIndexable() {
+        if (!isIndexable(overrideProperties)) {
+            return false;
+        }
+        for (AbstractConfiguration config: configList) {
+            if (!isIndexable(config)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isIndexable(AbstractConfiguration config) {
+        if (!(config instanceof ConcurrentMapConfiguration)
+                || !config.getConfigurationListeners().contains(eventPropagater)) {
+            return false;
+        }
+        if (config instanceof ConcurrentCompositeConfiguration) {
+            ConcurrentCompositeConfiguration composite = (ConcurrentCompositeConfiguration) config;
+            return composite.isPropagateEventFromSubConfigurations() && composite.resolvedProperties != null;
+        }
+        return true;
+    }
+
+    /**
+     * Rebuilds the index of winning values from all configurations,
+     * or drops it if the configurations cannot be indexed.
+     */
+    private void rebuildIndex() {
+        boolean indexChanged;
+        synchronized (indexLock) {
+            boolean wasIndexed = resolvedProperties != null;
+            if (!isIndexable()) {
+                resolvedProperties = null;
+            } else {
+                Map<String, ResolvedProperty> index = new ConcurrentHashMap<String, ResolvedProperty>();
+                addToIndex(index, overrideProperties);
+                for (AbstractConfiguration config: configList) {
+                    addToIndex(index, config);
+                }
+                resolvedProperties = index;
+            }
+            indexChanged = wasIndexed != (resolvedProperties != null);
+        }
+        if (indexChanged) {
+            notifyIndexChanged();
+        }
+    }
+
+    /**
+     * Lets the composite configurations that contain this one check again whether they can index it.
+     */
+    private void notifyIndexChanged() {
+        for (ConfigurationListener listener: getConfigurationListeners()) {
+            if (listener instanceof EventPropagater) {
+                ((EventPropagater) listener).subConfigurationIndexChanged();
+            }
+        }
+    }
+
+    private static void addToIndex(Map<String, ResolvedProperty> index, Configuration config) {
+        for (Iterator<String> it = config.getKeys(); it.hasNext();) {
+            String key = it.next();
+            if (!index.containsKey(key)) {
+                Object value = config.getProperty(key);
+                if (value != null) {
+                    index.put(key, new ResolvedProperty(config, value));
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates the index after a child configuration has changed. A change of a
+     * single property only resolves that key again; anything else rebuilds the index.
+     * Whether there is an index is only checked under {@link #indexLock}, so that a
+     * change made while the index is being rebuilt is resolved again once it is published.
+     */
+    private void updateIndex(ConfigurationEvent event) {
+        switch (event.getType()) {
+        case EVENT_ADD_PROPERTY:
+        case EVENT_SET_PROPERTY:
+        case EVENT_CLEAR_PROPERTY:
+            String key = event.getPropertyName();
+            synchronized (indexLock) {
+                Map<String, ResolvedProperty> index = resolvedProperties;
+                if (index == null || key == null) {
+                    return;
+                }
+                ResolvedProperty resolved = resolve(key);
+                if (resolved == null) {
+                    index.remove(key);
+                } else {
+                    index.put(key, resolved);
+                }
+            }
+            break;
+        case EVENT_BATCH_UPDATE:
+            synchronized (indexLock) {
+                Map<String, ResolvedProperty> index = resolvedProperties;
+                if (index == null) {
+                    return;
+                }
+                for (Object changedKey: ((Map<?, ?>) event.getPropertyValue()).keySet()) {
+                    ResolvedProperty resolved = resolve((String) changedKey);
+                    if (resolved == null) {
+                        index.remove(changedKey);
+                    } else {
+                        index.put((String) changedKey, resolved);
+                    }
+                }
+            }
+            break;
+        case EVENT_READ_PROPERTY:
+            break;
+        default:
+            boolean indexed;
+            synchronized (indexLock) {
+                indexed = resolvedProperties != null;
+            }
+            if (indexed) {
+                rebuildIndex();
+            }
+            break;
+        }
+    }
+
+    /**
+     * Returns the given keys that have no winning value in the index, or an empty set if there is no index.
+     */
+    private Set<String> getUnresolvedKeys(Collection<String> keys) {
+        Map<String, ResolvedProperty> index = resolvedProperties;
+        if (index == null) {
+            return Collections.emptySet();
+        }
+        Set<String> unresolved = new HashSet<String>();
+        for (String key: keys) {
+            if (!index.containsKey(key)) {
+                unresolved.add(key);
+            }
+        }
+        return unresolved;
+    }
+
+    /**
+     * Filters a batch of changes from a child configuration the same way single property events
+     * are filtered: a property set in the child is only reported if the child is not overridden
+     * by another configuration, and a property cleared in the child is reported with the value
+     * it now resolves to, if any.
+     */
+    private Map<String, Object> getWinningChanges(AbstractConfiguration sourceConfig, Map<String, Object> changes) {
+        Map<String, Object> winningChanges = new LinkedHashMap<String, Object>();
+        int sourceIndex = getIndexOfConfiguration(sourceConfig);
+        for (Map.Entry<String, Object> entry: changes.entrySet()) {
+            String key = entry.getKey();
+            if (entry.getValue() == null) {
+                winningChanges.put(key, getProperty(key));
+            } else {
+                AbstractConfiguration winningConf = (AbstractConfiguration) getSource(key);
+                if (winningConf == null || sourceIndex <= getIndexOfConfiguration(winningConf)) {
+                    winningChanges.put(key, entry.getValue());
+                }
+            }
+        }
+        return winningChanges;
+    }
+
+    private ResolvedProperty resolve(String key) {
+        Object value = overrideProperties.getProperty(key);
+        if (value != null) {
+            return new ResolvedProperty(overrideProperties, value);
+        }
+        for (Configuration config: configList) {
+            value = config.getProperty(key);
+            if (value != null) {
+                return new ResolvedProperty(config, value);
+            }
+        }
+        return null;
+    }
+
     /**
      * Adds the value of a property to the given list. This method is used by
      * {@code getList()} for gathering property values from the child
@@ -914,6 +1282,10 @@ public class ConcurrentCompositeConfiguration extends ConcurrentMapConfiguration
      * @param propagateEventToParent value to set
      */
     public final void setPropagateEventFromSubConfigurations(boolean propagateEventToParent) {
+        boolean changed = this.propagateEventToParent != propagateEventToParent;
         this.propagateEventToParent = propagateEventToParent;
+        if (changed) {
+            notifyIndexChanged();
+        }
     }    
 }
@@ -15,15 +15,20 @@
  */
 package com.netflix.config;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.configuration.AbstractConfiguration;
 import org.apache.commons.configuration.Configuration;
@@ -35,13 +40,18 @@ import org.apache.commons.configuration.event.ConfigurationListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Predicate;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.collect.Iterators;
 import com.netflix.config.validation.ValidationException;
 
 /**
  * This class uses a ConcurrentHashMap for reading/writing a property to achieve high
- * throughput and thread safety. The implementation is lock free for {@link #getProperty(String)}
- * and {@link #setProperty(String, Object)}, but has some synchronization cost for 
- * {@link #addProperty(String, Object)} if the object to add is not a String or the key already exists.
+ * throughput and thread safety. The implementation is lock free for {@link #getProperty(String)},
+ * {@link #setProperty(String, Object)} and {@link #addProperty(String, Object)}. The values of a
+ * multi-valued property are held in an immutable list, so a list returned by {@link #getProperty(String)}
+ * is a snapshot that cannot be modified and does not change when values are added to the property.
  * <p> 
  * The methods from AbstractConfiguration related to listeners and event generation are overridden
  * so that adding/deleting listeners and firing events are no longer synchronized.
@@ -59,29 +69,60 @@ public class ConcurrentMapConfiguration extends AbstractConfiguration {
     private Collection<ConfigurationListener> listeners = new CopyOnWriteArrayList<ConfigurationListener>();    
     private Collection<ConfigurationErrorListener> errorListeners = new CopyOnWriteArrayList<ConfigurationErrorListener>();    
     private static final Logger logger = LoggerFactory.getLogger(ConcurrentMapConfiguration.class);
-    private static final int NUM_LOCKS = 32;
-    private ReentrantLock[] locks = new ReentrantLock[NUM_LOCKS];
+    private final boolean internStrings;
+
+    /**
+     * Sorted copy of the keys of the map used by {@link #getKeys(String)}, created on its first call.
+     * It may briefly hold keys that have just been removed from the map, so the keys
+     * it returns are checked against the map.
+     */
+    private volatile NavigableSet<String> sortedKeys;
+
+    /**
+     * Weakly referenced String keys and values shared by all instances that intern them. An entry
+     * is dropped once no configuration refers to it any more.
+     */
+    private static final Interner<String> interner = Interners.newWeakInterner();
 
     /**
      * System property to disable delimiter parsing Apache Commons configurations
      */
     public static final String DISABLE_DELIMITER_PARSING = "archaius.configuration.disableDelimiterParsing";
 
+    /**
+     * System property to make configurations created afterwards store a single shared copy of equal String
+     * keys and values. This saves memory when the same keys and values are held by many configurations,
+     * for example the layers of a {@link ConcurrentCompositeConfiguration}, at the cost of a lookup
+     * each time a property is added or set.
+     */
+    public static final String INTERN_STRINGS = "archaius.configuration.internStrings";
+
+    /**
+     * Type of the event fired to {@link BatchConfigurationListener}s once {@link #applyChanges(Map, Collection)}
+     * has applied a batch of changes. The property name of the event is null and its value is a map from each
+     * changed property name to its new value, or to null if the property was cleared.
+     */
+    public static final int EVENT_BATCH_UPDATE = 10002;
+
     /**
      * Create an instance with an empty map.
      */
     public ConcurrentMapConfiguration() {
         map = new ConcurrentHashMap<String,Object>();
-        for (int i = 0; i < NUM_LOCKS; i++) {
-            locks[i] = new ReentrantLock();
-        }
         String disableDelimiterParsing = System.getProperty(DISABLE_DELIMITER_PARSING, "false");
         super.setDelimiterParsingDisabled(Boolean.valueOf(disableDelimiterParsing));
+        internStrings = Boolean.getBoolean(INTERN_STRINGS);
     }
     
     public ConcurrentMapConfiguration(Map<String, Object> mapToCopy) {
         this();
-        map = new ConcurrentHashMap<String, Object>(mapToCopy);
+        if (internStrings) {
+            for (Map.Entry<String, Object> entry: mapToCopy.entrySet()) {
+                map.put(internKey(entry.getKey()), internValue(entry.getValue()));
+            }
+        } else {
+            map = new ConcurrentHashMap<String, Object>(mapToCopy);
+        }
     }
 
     /**
@@ -96,39 +137,59 @@ public class ConcurrentMapConfiguration extends AbstractConfiguration {
         for (Iterator i = config.getKeys(); i.hasNext();) {
             String name = (String) i.next();
             Object value = config.getProperty(name);
-            map.put(name, value);
+            map.put(internKey(name), internValue(value));
         }
     }
 
+    /**
+     * Returns the shared copy of the key if String interning is enabled, or the key itself otherwise.
+     */
+    private String internKey(String key) {
+        return internStrings ? interner.intern(key) : key;
+    }
+
+    /**
+     * Returns the shared copy of the value if String interning is enabled and the value is a String,
+     * or the value itself otherwise.
+     */
+    private Object internValue(Object value) {
+        return (internStrings && value instanceof String) ? interner.intern((String) value) : value;
+    }
+
     public Object getProperty(String key)
     {
         return map.get(key);
     }
 
+    /**
+     * Adds a value to a property without taking a lock. If the property already has a value,
+     * it is replaced with an {@link ImmutableValueList} of the previous values followed by the
+     * new one, retrying if another thread changed the property in the meantime.
+     */
     protected void addPropertyDirect(String key, Object value)
     {
-        ReentrantLock lock = locks[Math.abs(key.hashCode()) % NUM_LOCKS];
-        lock.lock();
-        try {
+        key = internKey(key);
+        value = internValue(value);
+        while (true) {
             Object previousValue = map.putIfAbsent(key, value);
             if (previousValue == null) {
+                keyAdded(key);
                 return;
-            }   
-            if (previousValue instanceof List)
-            {
-                // the value is added to the existing list
-                ((List) previousValue).add(value);
             }
-            else
-            {
-                // the previous value is replaced by a list containing the previous value and the new value
-                List<Object> list = new CopyOnWriteArrayList<Object>();
-                list.add(previousValue);
-                list.add(value);
-                map.put(key, list);
+            if (map.replace(key, previousValue, appendValue(previousValue, value))) {
+                return;
             }
-        } finally {
-            lock.unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> appendValue(Object previousValue, Object value) {
+        if (previousValue instanceof ImmutableValueList) {
+            return ((ImmutableValueList<Object>) previousValue).with(value);
+        } else if (previousValue instanceof List) {
+            return ImmutableValueList.<Object>copyOf((List<Object>) previousValue).with(value);
+        } else {
+            return ImmutableValueList.<Object>copyOf(Collections.singletonList(previousValue)).with(value);
         }
     }
 
@@ -145,12 +206,71 @@ public class ConcurrentMapConfiguration extends AbstractConfiguration {
     protected void clearPropertyDirect(String key)
     {
         map.remove(key);
+        keyRemoved(key);
     }
 
     public Iterator getKeys()
     {
         return map.keySet().iterator();
     }
+
+    /**
+     * Get the keys that are equal to the prefix or start with the prefix followed by a dot.
+     * Unlike the implementation of {@link AbstractConfiguration}, which tests every key, this
+     * only visits the matching keys of a sorted index of the keys. The index is built on the
+     * first call and then kept up to date when properties are added or removed, so subclasses
+     * that change the map directly should not rely on this method.
+     * The iterator is weakly consistent and returns the keys in their natural order.
+     */
+    @Override
+    public Iterator<String> getKeys(final String prefix)
+    {
+        NavigableSet<String> keys = getSortedKeys();
+        Iterator<String> matching = keys.subSet(prefix + ".", true, prefix + "/", false).iterator();
+        if (keys.contains(prefix)) {
+            matching = Iterators.concat(Iterators.singletonIterator(prefix), matching);
+        }
+        return Iterators.filter(matching, new Predicate<String>() {
+            @Override
+            public boolean apply(String key) {
+                return map.containsKey(key);
+            }
+        });
+    }
+
+    private NavigableSet<String> getSortedKeys() {
+        NavigableSet<String> keys = sortedKeys;
+        if (keys == null) {
+            synchronized (this) {
+                keys = sortedKeys;
+                if (keys == null) {
+                    // published before it is filled so that keys added meanwhile are not missed
+                    keys = new ConcurrentSkipListSet<String>();
+                    sortedKeys = keys;
+                    keys.addAll(map.keySet());
+                }
+            }
+        }
+        return keys;
+    }
+
+    private void keyAdded(String key) {
+        NavigableSet<String> keys = sortedKeys;
+        if (keys != null) {
+            keys.add(key);
+        }
+    }
+
+    private void keyRemoved(String key) {
+        NavigableSet<String> keys = sortedKeys;
+        if (keys != null) {
+            keys.remove(key);
+            // the key may have been added again before it was removed from the index
+            if (map.containsKey(key)) {
+                keys.add(key);
+            }
+        }
+    }
     
 
     /**
@@ -183,11 +303,14 @@ public class ConcurrentMapConfiguration extends AbstractConfiguration {
     }
 
     protected void addPropertyImpl(String key, Object value) {
+        key = internKey(key);
         Object previousValue = null;
         if (isDelimiterParsingDisabled() ||
                 ((value instanceof String) && ((String) value).indexOf(getListDelimiter()) < 0)) {
-            previousValue = map.putIfAbsent(key, value);
-            if (previousValue != null) {
+            previousValue = map.putIfAbsent(key, internValue(value));
+            if (previousValue == null) {
+                keyAdded(key);
+            } else {
                 addPropertyValues(key, value,
                         isDelimiterParsingDisabled() ? '\0'
                                 : getListDelimiter());
@@ -217,25 +340,112 @@ public class ConcurrentMapConfiguration extends AbstractConfiguration {
     }
     
     protected void setPropertyImpl(String key, Object value) {
+        key = internKey(key);
         if (isDelimiterParsingDisabled()) {
-            map.put(key, value);
+            map.put(key, internValue(value));
         } else if ((value instanceof String) && ((String) value).indexOf(getListDelimiter()) < 0) {
-            map.put(key, value);
+            map.put(key, internValue(value));
         } else {
             Iterator it = PropertyConverter.toIterator(value, getListDelimiter());
-            List<Object> list = new CopyOnWriteArrayList<Object>();
+            List<Object> values = new ArrayList<Object>();
             while (it.hasNext())
             {
-                list.add(it.next());
+                values.add(internValue(it.next()));
             }
+            List<Object> list = ImmutableValueList.copyOf(values);
             if (list.size() == 1) {
                 map.put(key, list.get(0));
             } else {
                 map.put(key, list);
             }
         }        
+        keyAdded(key);
     }
     
+    /**
+     * Sets and clears a batch of properties as one unit. An event is fired before each property is set
+     * or cleared, so that validators still run per property: a property that fails validation is
+     * skipped and the rest of the batch is still applied. Once the batch is applied, listeners are
+     * notified with {@link #fireBatchEvent(Map, Collection)}.
+     *
+     * @param propertiesToSet properties to set, which must not contain null values
+     * @param propertiesToClear names of properties to clear
+     * @return true if every change was applied, false if a validator rejected any of them
+     */
+    public boolean applyChanges(Map<String, ?> propertiesToSet, Collection<String> propertiesToClear) {
+        boolean allApplied = true;
+        Map<String, Object> applied = new LinkedHashMap<String, Object>();
+        Set<String> added = new HashSet<String>();
+        for (Map.Entry<String, ?> entry: propertiesToSet.entrySet()) {
+            String key = entry.getKey();
+            Object value = entry.getValue();
+            if (value == null) {
+                throw new NullPointerException("Value for property " + key + " is null");
+            }
+            try {
+                fireEvent(EVENT_SET_PROPERTY, key, value, true);
+            } catch (ValidationException e) {
+                logger.warn("Validation failed for property " + key, e);
+                allApplied = false;
+                continue;
+            }
+            if (!map.containsKey(key)) {
+                added.add(key);
+            }
+            setPropertyImpl(key, value);
+            applied.put(key, value);
+        }
+        for (String key: propertiesToClear) {
+            fireEvent(EVENT_CLEAR_PROPERTY, key, null, true);
+            clearPropertyDirect(key);
+            applied.put(key, null);
+        }
+        if (!applied.isEmpty()) {
+            fireBatchEvent(Collections.unmodifiableMap(applied), added);
+        }
+        return allApplied;
+    }
+
+    /**
+     * Notifies listeners that a batch of properties has been set or cleared. A {@link BatchConfigurationListener}
+     * receives a single {@link #EVENT_BATCH_UPDATE} event; any other listener receives the after update events that
+     * {@link #addProperty(String, Object)}, {@link #setProperty(String, Object)} and {@link #clearProperty(String)}
+     * would have fired for each property.
+     *
+     * @param changes map of property names to their new values, or to null for cleared properties
+     * @param addedKeys names of the properties that did not exist before the batch
+     */
+    protected void fireBatchEvent(Map<String, Object> changes, Collection<String> addedKeys) {
+        if (listeners == null || listeners.size() == 0) {
+            return;
+        }
+        ConfigurationEvent batchEvent = null;
+        for (ConfigurationListener l: listeners) {
+            if (l instanceof BatchConfigurationListener) {
+                if (batchEvent == null) {
+                    batchEvent = createEvent(EVENT_BATCH_UPDATE, null, changes, false);
+                }
+                notifyListener(l, batchEvent);
+            } else {
+                for (Map.Entry<String, Object> entry: changes.entrySet()) {
+                    String key = entry.getKey();
+                    Object value = entry.getValue();
+                    int type = value == null ? EVENT_CLEAR_PROPERTY
+                            : addedKeys.contains(key) ? EVENT_ADD_PROPERTY : EVENT_SET_PROPERTY;
+                    notifyListener(l, createEvent(type, key, value, false));
+                }
+            }
+        }
+    }
+
+    private static void notifyListener(ConfigurationListener l, ConfigurationEvent event) {
+        try {
+            l.configurationChanged(event);
+        } catch (Throwable e) {
+            logger.error("Error firing configuration event", e);
+        }
+    }
+
     /**
      * Load properties into the configuration. This method iterates through
      * the entries of the properties and call {@link #setProperty(String, Object)} for 
@@ -280,6 +490,11 @@ public class ConcurrentMapConfiguration extends AbstractConfiguration {
     {
         fireEvent(EVENT_CLEAR, null, null, true);
         map.clear();
+        NavigableSet<String> keys = sortedKeys;
+        if (keys != null) {
+            keys.clear();
+            keys.addAll(map.keySet());
+        }
         fireEvent(EVENT_CLEAR, null, null, false);
     }
 
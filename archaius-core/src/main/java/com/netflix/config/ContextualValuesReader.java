@@ -0,0 +1,138 @@
+/**
+ * Copyright 2014 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.config;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.netflix.config.DynamicContextualProperty.Value;
+
+/**
+ * Parses the JSON value of a {@link DynamicContextualProperty} into its list of {@link Value}s.
+ * <p>
+ * The list is read with a streaming parser, and only the value of each entry is bound by Jackson, with a
+ * reader for the type of the property. One mapper is shared by all properties and the readers are
+ * cached by type, so that creating a property allocates neither.
+ */
+final class ContextualValuesReader {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final JsonFactory factory = mapper.getFactory();
+    private static final ConcurrentMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<Class<?>, ObjectReader>();
+
+    private ContextualValuesReader() {
+    }
+
+    /**
+     * @param json JSON array of objects with the optional fields "if", "value", "comment" and "runtimeEval"
+     * @param type type of the values
+     * @throws IOException if the string is not such a JSON array or a value cannot be bound to the type
+     */
+    static <T> List<Value<T>> read(String json, Class<T> type) throws IOException {
+        ObjectReader reader = getReader(type);
+        JsonParser parser = factory.createParser(json);
+        try {
+            expect(parser, parser.nextToken(), JsonToken.START_ARRAY);
+            List<Value<T>> values = new ArrayList<Value<T>>();
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                expect(parser, token, JsonToken.START_OBJECT);
+                values.add(ContextualValuesReader.<T>readValue(parser, reader));
+            }
+            return values;
+        } finally {
+            parser.close();
+        }
+    }
+
+    private static <T> Value<T> readValue(JsonParser parser, ObjectReader reader) throws IOException {
+        Value<T> value = new Value<T>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if ("if".equals(field)) {
+                value.setDimensions(token == JsonToken.VALUE_NULL ? null : readDimensions(parser));
+            } else if ("value".equals(field)) {
+                T v = reader.readValue(parser);
+                value.setValue(v);
+            } else if ("comment".equals(field)) {
+                value.setComment(token == JsonToken.VALUE_NULL ? null : parser.getText());
+            } else if ("runtimeEval".equals(field)) {
+                value.setRuntimeEval(parser.getValueAsBoolean());
+            } else {
+                throw new JsonParseException("Unrecognized field \"" + field + "\"", parser.getCurrentLocation());
+            }
+        }
+        return value;
+    }
+
+    private static Map<String, Collection<String>> readDimensions(JsonParser parser) throws IOException {
+        expect(parser, parser.getCurrentToken(), JsonToken.START_OBJECT);
+        Map<String, Collection<String>> dimensions = new LinkedHashMap<String, Collection<String>>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String dimension = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.VALUE_NULL) {
+                dimensions.put(dimension, null);
+                continue;
+            }
+            expect(parser, token, JsonToken.START_ARRAY);
+            List<String> accepted = new ArrayList<String>();
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == JsonToken.VALUE_NULL) {
+                    accepted.add(null);
+                } else if (token.isScalarValue()) {
+                    accepted.add(parser.getText());
+                } else {
+                    throw new JsonParseException("Expected a value of dimension \"" + dimension + "\" but got " + token,
+                            parser.getCurrentLocation());
+                }
+            }
+            dimensions.put(dimension, accepted);
+        }
+        return dimensions;
+    }
+
+    private static ObjectReader getReader(Class<?> type) {
+        ObjectReader reader = readers.get(type);
+        if (reader == null) {
+            reader = mapper.reader(type);
+            ObjectReader existing = readers.putIfAbsent(type, reader);
+            if (existing != null) {
+                reader = existing;
+            }
+        }
+        return reader;
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws JsonParseException {
+        if (actual != expected) {
+            throw new JsonParseException("Expected " + expected + " but got " + actual, parser.getCurrentLocation());
+        }
+    }
+}
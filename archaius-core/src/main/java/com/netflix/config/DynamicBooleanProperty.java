@@ -23,14 +23,17 @@ package com.netflix.config;
  *
  */
 public class DynamicBooleanProperty extends PropertyWrapper<Boolean> {
+    private final boolean primitiveDefault;
+
     public DynamicBooleanProperty(String propName, boolean defaultValue) {
         super(propName, Boolean.valueOf(defaultValue));
+        this.primitiveDefault = defaultValue;
     }
     /**
      * Get the current value from the underlying DynamicProperty
      */
     public boolean get() {
-        return prop.getBoolean(defaultValue).booleanValue();
+        return prop.getBooleanValue(primitiveDefault);
     }
     @Override
     public Boolean getValue() {
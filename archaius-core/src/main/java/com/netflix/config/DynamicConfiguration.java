@@ -60,11 +60,30 @@ public class DynamicConfiguration extends ConcurrentMapConfiguration {
         scheduler.startPolling(source, this);        
     }
     
+    /**
+     * Set the source and scheduler and initialize the configuration before {@link ParallelInitialLoader}
+     * does the initial poll of the source.
+     */
+    synchronized void prepareInitialPoll(PolledConfigurationSource source, AbstractPollingScheduler scheduler) {
+        this.scheduler = scheduler;
+        this.source = source;
+        init(source, scheduler);
+    }
+    
+    /**
+     * Start polling the source given to {@link #prepareInitialPoll(PolledConfigurationSource, AbstractPollingScheduler)}
+     * with the result of its initial poll.
+     */
+    synchronized void startPolling(PollResult initialResult) {
+        scheduler.startPolling(source, this, initialResult);
+    }
+    
     /**
      * Initialize the configuration. This method is called in 
      * {@link #DynamicConfiguration(PolledConfigurationSource, AbstractPollingScheduler)} 
-     * and {@link #startPolling(PolledConfigurationSource, AbstractPollingScheduler)}
-     * before the initial polling. The default implementation does nothing.
+     * and {@link #startPolling(PolledConfigurationSource, AbstractPollingScheduler)}, and when a source is
+     * registered with {@link ParallelInitialLoader}, before the initial polling. The default implementation
+     * does nothing.
      */
     protected void init(PolledConfigurationSource source, AbstractPollingScheduler scheduler) {
     }
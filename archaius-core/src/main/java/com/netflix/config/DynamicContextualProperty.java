@@ -15,17 +15,21 @@
  */
 package com.netflix.config;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.common.collect.Lists;
 
 /**
@@ -79,6 +83,9 @@ import com.google.common.collect.Lists;
         prop.get(); // returns 10 as "@environment" == "test" matches the second condition 
  * }</pre>
  * 
+ * With the default predicate, the conditions are compiled when the property changes, and the value they resolve to
+ * is cached until the property or one of the properties named in the conditions changes.
+ * 
  * @author awang
  *
  * @param <T> Data type of the property, e.g., Integer, Boolean
@@ -138,9 +145,84 @@ public class DynamicContextualProperty<T> extends PropertyWrapper<T> {
     private final Predicate<Map<String, Collection<String>>> predicate;
     @VisibleForTesting
     volatile List<Value<T>> values;
-    private final ObjectMapper mapper = new ObjectMapper();
     
     private final Class<T> classType;
+
+    private static final Interner<String> dimensionValueInterner = Interners.newWeakInterner();
+
+    /**
+     * A condition and value compiled for {@link DefaultContextualPredicate#PROPERTY_BASED}, with the
+     * dimension properties resolved and the accepted values interned in hash sets.
+     */
+    private static final class CompiledValue<T> {
+        private final DynamicProperty[] dimensions;
+        private final Set<?>[] acceptedValues;
+        private final T value;
+
+        CompiledValue(Value<T> source) {
+            Map<String, Collection<String>> conditions = source.getDimensions();
+            int size = conditions == null ? 0 : conditions.size();
+            dimensions = new DynamicProperty[size];
+            acceptedValues = new Set<?>[size];
+            if (size > 0) {
+                int i = 0;
+                for (Map.Entry<String, Collection<String>> entry: conditions.entrySet()) {
+                    dimensions[i] = DynamicProperty.getInstance(entry.getKey());
+                    acceptedValues[i] = compileAcceptedValues(entry.getValue());
+                    i++;
+                }
+            }
+            value = source.getValue();
+        }
+
+        /**
+         * A dimension without a list of values accepts none, as with the predicate.
+         */
+        private static Set<String> compileAcceptedValues(Collection<String> values) {
+            if (values == null) {
+                return Collections.emptySet();
+            }
+            Set<String> accepted = new HashSet<String>(values.size() * 4 / 3 + 1);
+            for (String value: values) {
+                accepted.add(value == null ? null : dimensionValueInterner.intern(value));
+            }
+            return accepted;
+        }
+
+        boolean matches() {
+            for (int i = 0; i < dimensions.length; i++) {
+                if (!acceptedValues[i].contains(dimensions[i].getString())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Resolved value of the property, cached until the property or one of its dimensions changes.
+     */
+    private static final class Resolved<T> {
+        private final T value;
+
+        Resolved(T value) {
+            this.value = value;
+        }
+    }
+
+    // compiled values, or null if the predicate is not the default one and the values are evaluated on every call
+    private volatile List<CompiledValue<T>> compiledValues;
+    // either a Resolved value, or a token replaced on every invalidation so that a value resolved
+    // before an invalidation is never cached after it
+    private final AtomicReference<Object> resolved = new AtomicReference<Object>(new Object());
+    // dimension properties this property listens to, only accessed when the property changes
+    private Set<DynamicProperty> dimensionProperties = new HashSet<DynamicProperty>();
+    private final Runnable dimensionChanged = new Runnable() {
+        @Override
+        public void run() {
+            resolved.set(new Object());
+        }
+    };
     
     @SuppressWarnings("unchecked")
     public DynamicContextualProperty(String propName, T defaultValue, Predicate<Map<String, Collection<String>>> predicate) {
@@ -159,9 +241,17 @@ public class DynamicContextualProperty<T> extends PropertyWrapper<T> {
     }
 
     private final void propertyChangedInternal() {
+        try {
+            parseValues();
+        } finally {
+            compile();
+        }
+    }
+
+    private void parseValues() {
         if (prop.getString() != null) {
             try {
-                values = mapper.readValue(prop.getString(), new TypeReference<List<Value<T>>>(){});
+                values = ContextualValuesReader.read(prop.getString(), classType);
             } catch (Throwable e) {
                 // this could be that the property is not set up as JSON based multi-dimensional contextual property
                 // and only has one textual value, try to parse this textual value                
@@ -181,6 +271,39 @@ public class DynamicContextualProperty<T> extends PropertyWrapper<T> {
             values = null;
         }
     }
+
+    /**
+     * Compiles the values for the default predicate, listens to changes of the dimension properties
+     * they refer to, and invalidates the cached value.
+     */
+    private synchronized void compile() {
+        if (predicate != DefaultContextualPredicate.PROPERTY_BASED) {
+            return;
+        }
+        List<CompiledValue<T>> compiled = Lists.newArrayList();
+        Set<DynamicProperty> dimensions = new HashSet<DynamicProperty>();
+        List<Value<T>> current = values;
+        if (current != null) {
+            for (Value<T> v: current) {
+                CompiledValue<T> compiledValue = new CompiledValue<T>(v);
+                compiled.add(compiledValue);
+                dimensions.addAll(Arrays.asList(compiledValue.dimensions));
+            }
+        }
+        for (DynamicProperty dimension: dimensions) {
+            if (!dimensionProperties.contains(dimension)) {
+                dimension.addCallback(dimensionChanged);
+            }
+        }
+        for (DynamicProperty dimension: dimensionProperties) {
+            if (!dimensions.contains(dimension)) {
+                dimension.removeCallback(dimensionChanged);
+            }
+        }
+        dimensionProperties = dimensions;
+        compiledValues = compiled;
+        resolved.set(new Object());
+    }
     
     @Override
     protected final void propertyChanged() {
@@ -188,10 +311,32 @@ public class DynamicContextualProperty<T> extends PropertyWrapper<T> {
         propertyChanged(this.getValue());
     }
     
+    @SuppressWarnings("unchecked")
     @Override
     public T getValue() {        
-        if (values != null) {
-            for (Value<T> v: values) {
+        Object current = resolved.get();
+        if (current instanceof Resolved) {
+            return ((Resolved<T>) current).value;
+        }
+        List<CompiledValue<T>> compiled = compiledValues;
+        if (compiled == null) {
+            return evaluate();
+        }
+        T value = defaultValue;
+        for (CompiledValue<T> v: compiled) {
+            if (v.matches()) {
+                value = v.value;
+                break;
+            }
+        }
+        resolved.compareAndSet(current, new Resolved<T>(value));
+        return value;
+    }
+
+    private T evaluate() {
+        List<Value<T>> current = values;
+        if (current != null) {
+            for (Value<T> v: current) {
                 if (v.getDimensions() == null || v.getDimensions().isEmpty()
                         || predicate.apply(v.getDimensions())) {
                     return v.getValue();
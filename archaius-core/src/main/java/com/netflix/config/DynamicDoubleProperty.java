@@ -24,15 +24,18 @@ package com.netflix.config;
  *
  */
 public class DynamicDoubleProperty extends PropertyWrapper<Double> {
+    private final double primitiveDefault;
+
     public DynamicDoubleProperty(String propName, double defaultValue) {
         super(propName, Double.valueOf(defaultValue));
+        this.primitiveDefault = defaultValue;
     }
         
     /**
      * Get the current value from the underlying DynamicProperty
      */
     public double get() {
-        return prop.getDouble(defaultValue).doubleValue();
+        return prop.getDoubleValue(primitiveDefault);
     }
 
     @Override
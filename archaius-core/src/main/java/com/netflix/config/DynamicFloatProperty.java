@@ -23,14 +23,17 @@ package com.netflix.config;
  *
  */
 public class DynamicFloatProperty extends PropertyWrapper<Float> {
+    private final float primitiveDefault;
+
     public DynamicFloatProperty(String propName, float defaultValue) {
         super(propName, Float.valueOf(defaultValue));
+        this.primitiveDefault = defaultValue;
     }
     /**
      * Get the current value from the underlying DynamicProperty
      */
     public float get() {
-        return prop.getFloat(defaultValue).floatValue();
+        return prop.getFloatValue(primitiveDefault);
     }
     @Override
     public Float getValue() {
@@ -25,15 +25,18 @@ import com.netflix.config.PropertyWrapper;
  *
  */
 public class DynamicIntProperty extends PropertyWrapper<Integer> {
+    private final int primitiveDefault;
+
     public DynamicIntProperty(String propName, int defaultValue) {
         super(propName, Integer.valueOf(defaultValue));
+        this.primitiveDefault = defaultValue;
     }
         
     /**
      * Get the current value from the underlying DynamicProperty
      */
     public int get() {
-        return prop.getInteger(defaultValue).intValue();
+        return prop.getIntValue(primitiveDefault);
     }
 
     @Override
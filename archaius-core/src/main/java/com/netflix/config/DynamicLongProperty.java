@@ -23,15 +23,18 @@ package com.netflix.config;
  *
  */
 public class DynamicLongProperty extends PropertyWrapper<Long> {
+    private final long primitiveDefault;
+
     public DynamicLongProperty(String propName, long defaultValue) {
         super(propName, Long.valueOf(defaultValue));
+        this.primitiveDefault = defaultValue;
     }
         
     /**
      * Get the current value from the underlying DynamicProperty
      */
     public long get() {
-        return prop.getLong(defaultValue).longValue();
+        return prop.getLongValue(primitiveDefault);
     }
 
     @Override
@@ -15,9 +15,20 @@
  */
 package com.netflix.config;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,8 +52,23 @@ import com.netflix.config.validation.ValidationException;
  * If the property value is fixed, consider just caching the value
  * in a variable.
  * <p>
- * Fetching the cached value is synchronized only on this property,
- * so contention should be negligible.
+ * Fetching the cached value never locks: the string value, the
+ * parsed typed values and the change timestamp are published together
+ * as an immutable snapshot that is swapped when the value changes.
+ * By default a typed value is parsed by its first reader after a change;
+ * setting the system property {@value #EAGER_PARSING_PROPERTY} to true
+ * moves that parse to the thread that applies the change, for every type
+ * the property has been read as so far.
+ * <p>
+ * Callbacks run on the thread that applies the change unless an executor
+ * is set with {@link #setCallbackExecutor(Executor)}, or a pool is created
+ * at startup by setting the system property {@value #CALLBACK_THREADS_PROPERTY}
+ * to the number of threads. With an executor, the callbacks of one property
+ * never run concurrently and run in the order of its changes, and changes
+ * that arrive while its callbacks are pending or running are coalesced into
+ * one more run, which sees the latest value. This includes the callbacks
+ * that wrappers like {@link CachedDynamicIntProperty} use to refresh their
+ * cached value, which therefore lags the property until they have run.
  * If even that level of overhead is too much for you,
  * you should (a) think real hard about what you are doing, and
  * (b) just cache the property value in a variable and be done
@@ -61,6 +87,25 @@ public class DynamicProperty {
     private static final Logger logger = LoggerFactory.getLogger(DynamicProperty.class);
     private volatile static DynamicPropertySupport dynamicPropertySupportImpl;
 
+    /**
+     * System property name that, when set to true, makes a property parse
+     * its new value into every type that has been requested from it so far
+     * on the thread that applies the change, instead of leaving the parse
+     * to the first reader after the change.
+     */
+    public static final String EAGER_PARSING_PROPERTY = "archaius.dynamicProperty.eagerParsing";
+
+    private static final boolean eagerParsing = Boolean.getBoolean(EAGER_PARSING_PROPERTY);
+
+    /**
+     * System property name for the number of threads of the pool that runs
+     * property callbacks, if greater than 0. By default callbacks run on the
+     * thread that applies the change.
+     */
+    public static final String CALLBACK_THREADS_PROPERTY = "archaius.dynamicProperty.callbackThreads";
+
+    private static volatile Executor callbackExecutor = createCallbackExecutor(Integer.getInteger(CALLBACK_THREADS_PROPERTY, 0));
+
     /*
      * Cache update is handled by a single configuration listener,
      * with a static collection holding all defined DynamicProperty objects.
@@ -72,35 +117,104 @@ public class DynamicProperty {
     private static final ConcurrentHashMap<String, DynamicProperty> ALL_PROPS
         = new ConcurrentHashMap<String, DynamicProperty>();
     
-    private Object lock = new Object();         // synchs caches and updates
+    private Object lock = new Object();         // synchs updates
     private String propName;
-    private String stringValue = null;
-    private long changedTime;
+    private volatile PropertyValue propertyValue = PropertyValue.NONE;
     private CopyOnWriteArraySet<Runnable> callbacks = new CopyOnWriteArraySet<Runnable>();
     private CopyOnWriteArraySet<PropertyChangeValidator> validators = new CopyOnWriteArraySet<PropertyChangeValidator>();
+    private final AtomicBoolean callbacksPending = new AtomicBoolean();     // a change is yet to be notified
+    private final AtomicBoolean callbacksScheduled = new AtomicBoolean();   // a dispatch task is queued or running
+    private final Runnable callbackDispatcher = new Runnable() {
+        public void run() {
+            do {
+                while (callbacksPending.getAndSet(false)) {
+                    runCallbacks();
+                }
+                callbacksScheduled.set(false);
+                // a change notified after the last check but before the reset must not be lost
+            } while (callbacksPending.get() && callbacksScheduled.compareAndSet(false, true));
+        }
+    };
 
+    /*
+     * Slots of the typed values held by a PropertyValue
+     */
+    private static final int STRING_SLOT = 0;
+    private static final int BOOLEAN_SLOT = 1;
+    private static final int INTEGER_SLOT = 2;
+    private static final int LONG_SLOT = 3;
+    private static final int FLOAT_SLOT = 4;
+    private static final int DOUBLE_SLOT = 5;
+    private static final int CLASS_SLOT = 6;
+    private static final int NUM_SLOTS = 7;
+
+    /**
+     * The result of parsing the string value into a particular type:
+     * either the parsed value or the exception raised by the parse.
+     * Numeric and boolean values are also kept unboxed, so the primitive
+     * getters can read them without unboxing.
+     * Instances are immutable, so they may be shared between threads
+     * without synchronization.
+     */
+    private static final class ParsedValue {
+        private static final ParsedValue NULL = new ParsedValue(null, null);
+
+        private final Object value;
+        private final IllegalArgumentException exception;
+        private final boolean present;
+        private final long longValue;
+        private final double doubleValue;
+
+        ParsedValue(Object value, IllegalArgumentException exception) {
+            this.value = value;
+            this.exception = exception;
+            this.present = (value != null);
+            if (value instanceof Number) {
+                longValue = ((Number) value).longValue();
+                doubleValue = ((Number) value).doubleValue();
+            } else if (value instanceof Boolean) {
+                longValue = ((Boolean) value).booleanValue() ? 1 : 0;
+                doubleValue = longValue;
+            } else {
+                longValue = 0;
+                doubleValue = 0;
+            }
+        }
+    }
+
+    /**
+     * A snapshot of the property: its string value, the time it was set
+     * and the typed values parsed from it so far.
+     * <p>
+     * A new snapshot is published through a single volatile reference
+     * whenever the value changes, so readers never lock and always see a
+     * consistent string value, timestamp and typed values.
+     * The typed values are filled in on first use; since {@link ParsedValue}
+     * is immutable, a race between two readers at worst parses twice.
+     */
+    private static final class PropertyValue {
+        private static final PropertyValue NONE = new PropertyValue(null, 0);
+
+        private final String stringValue;
+        private final long changedTime;
+        private final ParsedValue[] parsedValues = new ParsedValue[NUM_SLOTS];
+
+        PropertyValue(String stringValue, long changedTime) {
+            this.stringValue = stringValue;
+            this.changedTime = changedTime;
+        }
+    }
 
     /**
      * A cached value of a particular type.
+     * The value itself lives in the current {@link PropertyValue};
+     * this class knows how to parse it and where to keep it.
      * @param <T> the type of the cached value
      */
     private abstract class CachedValue<T> {
-        private volatile boolean isCached;
-        private volatile IllegalArgumentException exception;
-        private volatile T value;
-        public CachedValue() {
-            flush();
-        }
-        /**
-         * Flushes the cached value.
-         * Must be called with the {@code lock} variable held by this thread.
-         */
-        final void flush() {
-            // NOTE: is only called from updateValue(Object) which holds the lock
-            // assert(Thread.holdsLock(lock));
-            isCached = false;
-            exception = null;
-            value = null;
+        private final int slot;
+        public CachedValue(int slot) {
+            this.slot = slot;
         }
         /**
          * Gets the cached value.
@@ -109,25 +223,13 @@ public class DynamicProperty {
          * @return the parsed value, or null if there was no string value
          * @throws IllegalArgumentException if there was a problem
          */
+        @SuppressWarnings("unchecked")
         public T getValue() throws IllegalArgumentException {
-            // Not quite double-check locking -- since isCached is marked as volatile
-            if (!isCached) {
-                synchronized (lock) {
-                    try {
-                        value = (stringValue == null) ? null : parse(stringValue);
-                        exception = null;
-                    } catch (Exception e) {
-                        value = null;
-                        exception = new IllegalArgumentException(e);
-                    } finally {
-                        isCached = true;
-                    }
-                }
-            }
-            if (exception != null) {
-                throw exception;
+            ParsedValue parsed = getParsedValue(propertyValue);
+            if (parsed.exception != null) {
+                throw parsed.exception;
             } else {
-                return value;
+                return (T) parsed.value;
             }
         }
 
@@ -141,22 +243,63 @@ public class DynamicProperty {
          * @return the parsed value, or the default if there was no
          *    string value or a problem during parse
          */
+        @SuppressWarnings("unchecked")
         public T getValue(T defaultValue) {
-            try {
-                T result = getValue();
-                return (result == null) ? defaultValue : result;
-            } catch (IllegalArgumentException e) {
+            ParsedValue parsed = getParsedValue(propertyValue);
+            if (parsed.exception != null || parsed.value == null) {
                 return defaultValue;
+            } else {
+                return (T) parsed.value;
             }
         }
+
+        /**
+         * Gets the parse result for the current value, parsing it now
+         * if that has not been done yet.
+         */
+        ParsedValue getParsedValue() {
+            return getParsedValue(propertyValue);
+        }
+
+        private ParsedValue getParsedValue(PropertyValue current) {
+            ParsedValue parsed = current.parsedValues[slot];
+            if (parsed == null) {
+                parsed = parseValue(current.stringValue);
+                current.parsedValues[slot] = parsed;
+            }
+            return parsed;
+        }
+
+        /**
+         * Parses the value of {@code next} now if this type was requested
+         * from {@code previous}.
+         */
+        void parseIfRequested(PropertyValue previous, PropertyValue next) {
+            if (previous.parsedValues[slot] != null) {
+                getParsedValue(next);
+            }
+        }
+
+        private ParsedValue parseValue(String rep) {
+            if (rep == null) {
+                return ParsedValue.NULL;
+            }
+            try {
+                return new ParsedValue(parse(rep), null);
+            } catch (Exception e) {
+                return new ParsedValue(null, new IllegalArgumentException(e));
+            }
+        }
+
         @Override
         public String toString() {
-            if (!isCached) {
+            ParsedValue parsed = propertyValue.parsedValues[slot];
+            if (parsed == null) {
                 return "{not cached}";
-            } else if (exception != null) {
-                return "{Exception: " + exception + "}";
+            } else if (parsed.exception != null) {
+                return "{Exception: " + parsed.exception + "}";
             } else {
-                return "{Value: " + value + "}";
+                return "{Value: " + parsed.value + "}";
             }
         }
         /**
@@ -175,7 +318,7 @@ public class DynamicProperty {
      * Cached translated values
      */
 
-    private CachedValue<Boolean> booleanValue = new CachedValue<Boolean>() {
+    private CachedValue<Boolean> booleanValue = new CachedValue<Boolean>(BOOLEAN_SLOT) {
         protected Boolean parse(String rep) throws IllegalArgumentException {
             for (int i = 0; i < TRUE_VALUES.length; i++){
                 if (rep.equalsIgnoreCase(TRUE_VALUES[i])) {
@@ -191,43 +334,48 @@ public class DynamicProperty {
         }
     };
 
-    private CachedValue<String> cachedStringValue = new CachedValue<String>() {
+    private CachedValue<String> cachedStringValue = new CachedValue<String>(STRING_SLOT) {
         protected String parse(String rep) {
             return rep;
         }
     };
 
-    private CachedValue<Integer> integerValue = new CachedValue<Integer>() {
+    private CachedValue<Integer> integerValue = new CachedValue<Integer>(INTEGER_SLOT) {
         protected Integer parse(String rep) throws NumberFormatException {
             return Integer.valueOf(rep);
         }
     };
 
-    private CachedValue<Long> longValue = new CachedValue<Long>() {
+    private CachedValue<Long> longValue = new CachedValue<Long>(LONG_SLOT) {
         protected Long parse(String rep) throws NumberFormatException {
             return Long.valueOf(rep);
         }
     };
 
-    private CachedValue<Float> floatValue = new CachedValue<Float>() {
+    private CachedValue<Float> floatValue = new CachedValue<Float>(FLOAT_SLOT) {
         protected Float parse(String rep) throws NumberFormatException {
             return Float.valueOf(rep);
         }
     };
 
-    private CachedValue<Double> doubleValue = new CachedValue<Double>() {
+    private CachedValue<Double> doubleValue = new CachedValue<Double>(DOUBLE_SLOT) {
         protected Double parse(String rep) throws NumberFormatException {
             return Double.valueOf(rep);
         }
     };
 
     
-    private CachedValue<Class> classValue = new CachedValue<Class>() {
+    private CachedValue<Class> classValue = new CachedValue<Class>(CLASS_SLOT) {
         protected Class parse(String rep) throws ClassNotFoundException {
             return Class.forName(rep);
         }
     };
 
+    @SuppressWarnings("rawtypes")
+    private final CachedValue[] cachedValues = {
+        cachedStringValue, booleanValue, integerValue, longValue, floatValue, doubleValue, classValue
+    };
+
     /*
      * Constructors
      */
@@ -286,9 +434,7 @@ public class DynamicProperty {
      * when the property value was last set/changed.
      */
     public long getChangedTimestamp() {
-        synchronized (lock) {
-            return changedTime;
-        }
+        return propertyValue.changedTime;
     }
 
     /**
@@ -432,6 +578,81 @@ public class DynamicProperty {
     }
     
     
+    /**
+     * Gets the current value of the property as a primitive boolean.
+     * Unlike {@link #getBoolean(Boolean)}, this neither boxes the default
+     * nor unboxes the result.
+     *
+     * @param defaultValue the value to return if the property is not defined,
+     *    or is not of the proper format
+     * @return the current property value, or the default value if there is
+     *    none or the property is not of the proper format
+     */
+    public boolean getBooleanValue(boolean defaultValue) {
+        ParsedValue parsed = booleanValue.getParsedValue();
+        return parsed.present ? parsed.longValue != 0 : defaultValue;
+    }
+
+    /**
+     * Gets the current value of the property as a primitive int.
+     * Unlike {@link #getInteger(Integer)}, this neither boxes the default
+     * nor unboxes the result.
+     *
+     * @param defaultValue the value to return if the property is not defined,
+     *    or is not of the proper format
+     * @return the current property value, or the default value if there is
+     *    none or the property is not of the proper format
+     */
+    public int getIntValue(int defaultValue) {
+        ParsedValue parsed = integerValue.getParsedValue();
+        return parsed.present ? (int) parsed.longValue : defaultValue;
+    }
+
+    /**
+     * Gets the current value of the property as a primitive long.
+     * Unlike {@link #getLong(Long)}, this neither boxes the default
+     * nor unboxes the result.
+     *
+     * @param defaultValue the value to return if the property is not defined,
+     *    or is not of the proper format
+     * @return the current property value, or the default value if there is
+     *    none or the property is not of the proper format
+     */
+    public long getLongValue(long defaultValue) {
+        ParsedValue parsed = longValue.getParsedValue();
+        return parsed.present ? parsed.longValue : defaultValue;
+    }
+
+    /**
+     * Gets the current value of the property as a primitive float.
+     * Unlike {@link #getFloat(Float)}, this neither boxes the default
+     * nor unboxes the result.
+     *
+     * @param defaultValue the value to return if the property is not defined,
+     *    or is not of the proper format
+     * @return the current property value, or the default value if there is
+     *    none or the property is not of the proper format
+     */
+    public float getFloatValue(float defaultValue) {
+        ParsedValue parsed = floatValue.getParsedValue();
+        return parsed.present ? (float) parsed.doubleValue : defaultValue;
+    }
+
+    /**
+     * Gets the current value of the property as a primitive double.
+     * Unlike {@link #getDouble(Double)}, this neither boxes the default
+     * nor unboxes the result.
+     *
+     * @param defaultValue the value to return if the property is not defined,
+     *    or is not of the proper format
+     * @return the current property value, or the default value if there is
+     *    none or the property is not of the proper format
+     */
+    public double getDoubleValue(double defaultValue) {
+        ParsedValue parsed = doubleValue.getParsedValue();
+        return parsed.present ? parsed.doubleValue : defaultValue;
+    }
+
     /**
      * Gets the current value of the property as a Class.
      *
@@ -520,7 +741,60 @@ public class DynamicProperty {
         return callbacks;         
     }
 
+    /**
+     * Sets the executor that runs the callbacks of all properties, or null to run
+     * them on the thread that applies each change.
+     */
+    public static void setCallbackExecutor(Executor executor) {
+        callbackExecutor = executor;
+    }
+
+    /**
+     * @return the executor that runs the callbacks, or null if they run on the thread that applies each change
+     */
+    public static Executor getCallbackExecutor() {
+        return callbackExecutor;
+    }
+
+    private static Executor createCallbackExecutor(int threads) {
+        if (threads <= 0) {
+            return null;
+        }
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                // coalescing keeps at most one task per property in the queue
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "dynamicPropertyCallbacks");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     private void notifyCallbacks() {
+        Executor executor = callbackExecutor;
+        if (executor == null) {
+            runCallbacks();
+            return;
+        }
+        if (callbacks.isEmpty()) {
+            return;
+        }
+        callbacksPending.set(true);
+        if (callbacksScheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(callbackDispatcher);
+            } catch (RejectedExecutionException e) {
+                logger.warn("Callback executor rejected callbacks of " + propName + ", running them on this thread");
+                callbackDispatcher.run();
+            }
+        }
+    }
+
+    private void runCallbacks() {
         for (Runnable r : callbacks) {
             try {
                 r.run();
@@ -559,27 +833,23 @@ public class DynamicProperty {
         return updateValue(newValue);
     }
 
-    private void setStatusForValues() {
-        cachedStringValue.isCached = false;
-        booleanValue.isCached = false;
-        integerValue.isCached = false;
-        floatValue.isCached = false;
-        classValue.isCached = false;
-        doubleValue.isCached = false;
-        longValue.isCached = false;
-    }
-
     // return true iff the value actually changed
     boolean updateValue(Object newValue) {
         String nv = (newValue == null) ? null : newValue.toString();
         synchronized (lock) {
+            String stringValue = propertyValue.stringValue;
             if ((nv == null && stringValue == null)
                || (nv != null && nv.equals(stringValue))) {
                 return false;
             }
-            stringValue = nv;
-            setStatusForValues();
-            changedTime = System.currentTimeMillis();
+            PropertyValue next = new PropertyValue(nv, System.currentTimeMillis());
+            if (eagerParsing) {
+                PropertyValue previous = propertyValue;
+                for (CachedValue<?> cachedValue: cachedValues) {
+                    cachedValue.parseIfRequested(previous, next);
+                }
+            }
+            propertyValue = next;
             return true;
         }
     }
@@ -594,6 +864,22 @@ public class DynamicProperty {
         return false;
     }
 
+    // return true iff _some_ value actually changed
+    private static boolean updateProperties(Collection<String> propNames) {
+        // update every value before running any callback, so that callbacks see the whole batch
+        List<DynamicProperty> changed = new ArrayList<DynamicProperty>();
+        for (String propName: propNames) {
+            DynamicProperty prop = ALL_PROPS.get(propName);
+            if (prop != null && prop.updateValue()) {
+                changed.add(prop);
+            }
+        }
+        for (DynamicProperty prop: changed) {
+            prop.notifyCallbacks();
+        }
+        return !changed.isEmpty();
+    }
+
     // return true iff _some_ value actually changed
     private static boolean updateAllProperties() {
         boolean changed = false;
@@ -619,7 +905,7 @@ public class DynamicProperty {
      * A callback object that listens for configuration changes
      * and maintains cached property values.
      */
-    static class DynamicPropertyListener implements PropertyListener {
+    static class DynamicPropertyListener implements BatchPropertyListener {
         DynamicPropertyListener() { }
         @Override
         public void configSourceLoaded(Object source) {
@@ -653,6 +939,13 @@ public class DynamicProperty {
                 updateAllProperties();
             }
         }
+        /**
+         * The values are read again from the configuration, and callbacks run once every value is updated.
+         */
+        @Override
+        public void propertiesChanged(Object source, Map<String, Object> changes) {
+            updateProperties(changes.keySet());
+        }
     }
 
     /**
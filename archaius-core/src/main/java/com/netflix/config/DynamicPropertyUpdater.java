@@ -17,12 +17,14 @@ package com.netflix.config;
 
 import com.google.common.base.Splitter;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.commons.configuration.AbstractConfiguration;
 import org.apache.commons.configuration.Configuration;
@@ -39,7 +41,11 @@ import com.netflix.config.validation.ValidationException;
  * property that is in the configuration - but not in the result - is deleted if ignoreDeletesFromSource is false.<BR>
  * 
  * If the result is incremental, properties will be added and changed from the partial result in the configuration.
- * Deleted properties are deleted from configuration iff ignoreDeletesFromSource is false.
+ * Deleted properties are deleted from configuration iff ignoreDeletesFromSource is false.<BR>
+ * 
+ * If the configuration is a {@link ConcurrentMapConfiguration}, the changes are applied as one batch with
+ * {@link ConcurrentMapConfiguration#applyChanges(Map, java.util.Collection)}, so that listeners receive a single
+ * event for the whole result instead of one per property.
  * 
  * This code is shared by both {@link AbstractPollingScheduler} and {@link DynamicWatchedConfiguration}.
  */
@@ -58,20 +64,34 @@ public class DynamicPropertyUpdater {
      */
     public void updateProperties(final WatchedUpdateResult result, final Configuration config,
             final boolean ignoreDeletesFromSource) {
+        applyProperties(result, config, ignoreDeletesFromSource);
+    }
+
+    /**
+     * Same as {@link #updateProperties(WatchedUpdateResult, Configuration, boolean)}, and tells whether every
+     * property of the result was applied.
+     *
+     * @return false if a validator rejected the value of any property
+     */
+    boolean applyProperties(final WatchedUpdateResult result, final Configuration config,
+            final boolean ignoreDeletesFromSource) {
         if (result == null || !result.hasChanges()) {
-            return;
+            return true;
         }
 
         logger.debug("incremental result? [{}]", result.isIncremental());
         logger.debug("ignored deletes from source? [{}]", ignoreDeletesFromSource);
 
-        if (!result.isIncremental()) {
+        boolean allApplied = true;
+        if (config instanceof ConcurrentMapConfiguration) {
+            allApplied = applyBatch(result, (ConcurrentMapConfiguration) config, ignoreDeletesFromSource);
+        } else if (!result.isIncremental()) {
             Map<String, Object> props = result.getComplete();
             if (props == null) {
-                return;
+                return true;
             }
             for (Entry<String, Object> entry : props.entrySet()) {
-                addOrChangeProperty(entry.getKey(), entry.getValue(), config);
+                allApplied &= addOrChangeProperty(entry.getKey(), entry.getValue(), config);
             }
             Set<String> existingKeys = new HashSet<String>();
             for (Iterator<String> i = config.getKeys(); i.hasNext();) {
@@ -88,13 +108,13 @@ public class DynamicPropertyUpdater {
             Map<String, Object> props = result.getAdded();
             if (props != null) {
                 for (Entry<String, Object> entry : props.entrySet()) {
-                    addOrChangeProperty(entry.getKey(), entry.getValue(), config);
+                    allApplied &= addOrChangeProperty(entry.getKey(), entry.getValue(), config);
                 }
             }
             props = result.getChanged();
             if (props != null) {
                 for (Entry<String, Object> entry : props.entrySet()) {
-                    addOrChangeProperty(entry.getKey(), entry.getValue(), config);
+                    allApplied &= addOrChangeProperty(entry.getKey(), entry.getValue(), config);
                 }
             }
             if (!ignoreDeletesFromSource) {
@@ -106,6 +126,78 @@ public class DynamicPropertyUpdater {
                 }
             }
         }
+        return allApplied;
+    }
+
+    private boolean applyBatch(final WatchedUpdateResult result, final ConcurrentMapConfiguration config,
+            final boolean ignoreDeletesFromSource) {
+        Map<String, Object> propertiesToSet = new HashMap<String, Object>();
+        Set<String> propertiesToClear = new HashSet<String>();
+        if (!result.isIncremental()) {
+            Map<String, Object> props = result.getComplete();
+            if (props == null) {
+                return true;
+            }
+            addChangedProperties(props, config, propertiesToSet);
+            if (!ignoreDeletesFromSource) {
+                for (Iterator<String> i = config.getKeys(); i.hasNext();) {
+                    String key = i.next();
+                    if (!props.containsKey(key)) {
+                        propertiesToClear.add(key);
+                    }
+                }
+            }
+        } else {
+            addChangedProperties(result.getAdded(), config, propertiesToSet);
+            addChangedProperties(result.getChanged(), config, propertiesToSet);
+            Map<String, Object> props = result.getDeleted();
+            if (!ignoreDeletesFromSource && props != null) {
+                for (String name : props.keySet()) {
+                    propertiesToSet.remove(name);
+                    if (config.containsKey(name)) {
+                        propertiesToClear.add(name);
+                    }
+                }
+            }
+        }
+        logger.debug("applying [{}] changed and [{}] deleted properties", propertiesToSet.size(), propertiesToClear.size());
+        return config.applyChanges(propertiesToSet, propertiesToClear);
+    }
+
+    private void addChangedProperties(final Map<String, Object> props, final Configuration config,
+            final Map<String, Object> propertiesToSet) {
+        if (props == null) {
+            return;
+        }
+        for (Entry<String, Object> entry : props.entrySet()) {
+            String name = entry.getKey();
+            Object newValue = entry.getValue();
+            if (!config.containsKey(name) || isChanged(config.getProperty(name), newValue)) {
+                propertiesToSet.put(name, newValue);
+            }
+        }
+    }
+
+    /**
+     * Compares the new value from the source with the value in the configuration,
+     * which is a list if the value from the source was split on the list delimiter.
+     */
+    private boolean isChanged(final Object oldValue, final Object newValue) {
+        if (newValue == null) {
+            return oldValue != null;
+        }
+        Object newValueArray;
+        if (oldValue instanceof List && newValue instanceof String && AbstractConfiguration.getDefaultListDelimiter() != '\0'){
+            List<String> newValues = new ArrayList<String>();
+            Iterable<String> stringiterator = Splitter.on(AbstractConfiguration.getDefaultListDelimiter()).omitEmptyStrings().trimResults().split((String)newValue);
+            for(String s :stringiterator){
+                newValues.add(s);
+            }
+            newValueArray = newValues;
+        } else {
+            newValueArray = newValue;
+        }
+        return !newValueArray.equals(oldValue);
     }
 
     /**
@@ -114,8 +206,9 @@ public class DynamicPropertyUpdater {
      * @param name
      * @param newValue
      * @param config
+     * @return false if a validator rejected the new value
      */
-    void addOrChangeProperty(final String name, final Object newValue, final Configuration config) {
+    boolean addOrChangeProperty(final String name, final Object newValue, final Configuration config) {
         // We do not want to abort the operation due to failed validation on one property
         try {
             if (!config.containsKey(name)) {
@@ -126,20 +219,7 @@ public class DynamicPropertyUpdater {
                 Object oldValue = config.getProperty(name);
              
                 if (newValue != null) {
-                    Object newValueArray;
-                    if (oldValue instanceof CopyOnWriteArrayList && AbstractConfiguration.getDefaultListDelimiter() != '\0'){
-                        newValueArray = 
-                                        new CopyOnWriteArrayList();
-                        
-                      Iterable<String> stringiterator = Splitter.on(AbstractConfiguration.getDefaultListDelimiter()).omitEmptyStrings().trimResults().split((String)newValue);
-                      for(String s :stringiterator){
-                            ((CopyOnWriteArrayList) newValueArray).add(s);
-                        }
-                      } else {
-                          newValueArray = newValue;
-                      }
-                  
-                    if (!newValueArray.equals(oldValue)) {
+                    if (isChanged(oldValue, newValue)) {
                         logger.debug("updating property key [{}], value [{}]", name, newValue);
     
                         config.setProperty(name, newValue);
@@ -153,7 +233,9 @@ public class DynamicPropertyUpdater {
             }
         } catch (ValidationException e) {
             logger.warn("Validation failed for property " + name, e);
+            return false;
         }
+        return true;
     }
 
     /**
@@ -15,6 +15,8 @@
  */
 package com.netflix.config;
 
+import java.util.Map;
+
 import org.apache.commons.configuration.AbstractConfiguration;
 import org.apache.commons.configuration.CombinedConfiguration;
 import org.apache.commons.configuration.HierarchicalConfiguration;
@@ -31,9 +33,11 @@ import org.apache.commons.configuration.event.ConfigurationListener;
  * It also has the capability to pause the event delivery through the {@link #setPauseListener(boolean)} API.
  * <p> This class is used as an adapter to attach a {@link PropertyListener} to a Configuration so that
  * methods in the {@link PropertyListener} will be called when there is a change in the configuration.
+ * <p> A batch of changes is passed as a whole to a {@link BatchPropertyListener}, and as one call per
+ * property to any other {@link PropertyListener}.
  *  
  */
-public class ExpandedConfigurationListenerAdapter implements ConfigurationListener
+public class ExpandedConfigurationListenerAdapter implements BatchConfigurationListener
 {
     /** The wrapped PropertyListener. */
     private PropertyListener expandedListener;
@@ -139,6 +143,24 @@ public class ExpandedConfigurationListenerAdapter implements ConfigurationListen
         case AbstractConfiguration.EVENT_SET_PROPERTY:
             expandedListener.setProperty(source, name, value, beforeUpdate);
             break;
+
+        // Value is the map of properties set or, if mapped to null, cleared by the batch.
+        case ConcurrentMapConfiguration.EVENT_BATCH_UPDATE:
+            if (beforeUpdate) {
+                break;
+            }
+            if (expandedListener instanceof BatchPropertyListener) {
+                ((BatchPropertyListener) expandedListener).propertiesChanged(source, (Map<String, Object>) value);
+            } else {
+                for (Map.Entry<String, Object> entry: ((Map<String, Object>) value).entrySet()) {
+                    if (entry.getValue() == null) {
+                        expandedListener.clearProperty(source, entry.getKey(), null, false);
+                    } else {
+                        expandedListener.setProperty(source, entry.getKey(), entry.getValue(), false);
+                    }
+                }
+            }
+            break;
             
         default:
             break;
@@ -18,18 +18,13 @@ package com.netflix.config;
 
 /**
  * A polling scheduler that schedule the polling with fixed delay. This class relies 
- * on java.util.concurrent.ScheduledExecutorService to do the scheduling.
+ * on {@link SharedPollingExecutor} to do the scheduling.
  * 
  * @author awang
  */
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.TimeUnit;
-
 public class FixedDelayPollingScheduler extends AbstractPollingScheduler {
     
-    private ScheduledExecutorService executor;
+    private SharedPollingExecutor.Handle handle;
     private int initialDelayMillis = 30000;
     private int delayMillis = 60000;
     
@@ -73,29 +68,33 @@ public class FixedDelayPollingScheduler extends AbstractPollingScheduler {
     }
     
     /**
-     * This method is implemented with 
-     * {@link java.util.concurrent.ScheduledExecutorService#scheduleWithFixedDelay(Runnable, long, long, TimeUnit)}
+     * This method is implemented with
+     * {@link SharedPollingExecutor#scheduleWithFixedDelay(String, Runnable, long, long)}. A runnable
+     * scheduled before is cancelled.
      */
     @Override
     protected synchronized void schedule(Runnable runnable) {
-        executor = Executors.newScheduledThreadPool(1, new ThreadFactory() {
-            @Override
-            public Thread newThread(Runnable r) {
-                Thread t = new Thread(r, "pollingConfigurationSource");
-                t.setDaemon(true);
-                return t;
-            }
-        });
-        executor.scheduleWithFixedDelay(runnable, initialDelayMillis, delayMillis, TimeUnit.MILLISECONDS);        
+        if (handle != null) {
+            handle.cancel();
+        }
+        handle = SharedPollingExecutor.scheduleWithFixedDelay(getTaskName("pollingConfigurationSource"), runnable,
+                initialDelayMillis, delayMillis);
+    }
+
+    /**
+     * @return the task polling the source, which reports how often and how late it ran, or null if polling
+     *         is not scheduled
+     */
+    public synchronized SharedPollingExecutor.Handle getHandle() {
+        return handle;
     }
         
     
     @Override
-    public void stop() {
-        if (executor != null) {
-            executor.shutdown();
-            executor = null;
+    public synchronized void stop() {
+        if (handle != null) {
+            handle.cancel();
+            handle = null;
         }
     }
 }
-
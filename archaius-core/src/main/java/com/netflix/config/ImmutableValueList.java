@@ -0,0 +1,88 @@
+/**
+ * Copyright 2014 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.config;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An immutable list of the values of a multi-valued property. Appending a value with {@link #with(Object)}
+ * returns a new list and leaves this one unchanged, but the new list shares the backing array with this
+ * one whenever it has room left, so a sequence of appends costs amortized constant time per value
+ * instead of copying the whole list each time.
+ * <p>
+ * Each slot of the backing array is claimed at most once with a compare-and-set on a counter shared
+ * by all lists using the array. A list whose next slot is already claimed by another list copies the
+ * array, so lists derived from the same list never see each other's values.
+ *
+ * @param <E> type of the values
+ */
+final class ImmutableValueList<E> extends AbstractList<E> implements RandomAccess {
+    private static final int MIN_CAPACITY = 4;
+
+    private final Object[] elements;
+    private final int size;
+    private final AtomicInteger claimed;
+
+    private ImmutableValueList(Object[] elements, int size, AtomicInteger claimed) {
+        this.elements = elements;
+        this.size = size;
+        this.claimed = claimed;
+    }
+
+    /**
+     * Create a list holding the values of a collection, in its iteration order.
+     */
+    static <E> ImmutableValueList<E> copyOf(Collection<? extends E> values) {
+        Object[] elements = values.toArray();
+        if (elements.length < MIN_CAPACITY) {
+            elements = Arrays.copyOf(elements, MIN_CAPACITY);
+        }
+        return new ImmutableValueList<E>(elements, values.size(), new AtomicInteger(values.size()));
+    }
+
+    /**
+     * Returns a list holding the values of this list followed by the given value.
+     */
+    ImmutableValueList<E> with(E value) {
+        if (size < elements.length && claimed.compareAndSet(size, size + 1)) {
+            // the slot is written before the new list is published, and this list never reads it
+            elements[size] = value;
+            return new ImmutableValueList<E>(elements, size + 1, claimed);
+        }
+        Object[] copy = new Object[Math.max(MIN_CAPACITY, size * 2)];
+        System.arraycopy(elements, 0, copy, 0, size);
+        copy[size] = value;
+        return new ImmutableValueList<E>(copy, size + 1, new AtomicInteger(size + 1));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public E get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return (E) elements[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
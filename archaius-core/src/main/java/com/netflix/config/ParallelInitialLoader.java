@@ -0,0 +1,197 @@
+/**
+ * Copyright 2014 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Does the initial poll of several {@link PolledConfigurationSource}s concurrently instead of one after
+ * another, as constructing a {@link DynamicConfiguration} for each of them would.
+ * <p>
+ * Each source is registered with {@link #addSource(String, PolledConfigurationSource, AbstractPollingScheduler)},
+ * which returns the {@link DynamicConfiguration} that will hold its properties, so that it can be added to
+ * a {@link ConcurrentCompositeConfiguration} right away. Sources should be registered in the order of their
+ * precedence, highest first, like the configurations of a {@link ConcurrentCompositeConfiguration}.
+ * {@link #start()} then polls all sources on the executor. The results are applied to their configurations
+ * in the order the sources were registered, each as soon as it and all the results before it are
+ * available, so a property never resolves to the value of a source while a source of higher precedence
+ * is still to be applied. Once applied, each configuration is polled by its own scheduler as usual.
+ * <p>
+ * Example:
+ * <pre>
+ *   ParallelInitialLoader loader = new ParallelInitialLoader(executor);
+ *   composite.addConfiguration(loader.addSource("database", jdbcSource, new FixedDelayPollingScheduler()), "database");
+ *   composite.addConfiguration(loader.addSource("url", urlSource, new FixedDelayPollingScheduler()), "url");
+ *   loader.start().get(30, TimeUnit.SECONDS);
+ * </pre>
+ */
+public class ParallelInitialLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelInitialLoader.class);
+
+    private static final class Source {
+        final String name;
+        final PolledConfigurationSource source;
+        final AbstractPollingScheduler scheduler;
+        final DynamicConfiguration configuration = new DynamicConfiguration();
+        // the fields below are guarded by the loader
+        boolean polled;
+        PollResult result;
+        Throwable failure;
+        long millis;
+
+        Source(String name, PolledConfigurationSource source, AbstractPollingScheduler scheduler) {
+            this.name = name;
+            this.source = source;
+            this.scheduler = scheduler;
+        }
+    }
+
+    private final Executor executor;
+    private final List<Source> sources = new ArrayList<Source>();
+    // guarded by this
+    private SettableFuture<Map<String, Long>> ready;
+    private int nextToApply;
+
+    /**
+     * @param executor executor to run the initial polls on. It should have as many threads as there
+     *                 are sources to poll them all at once.
+     */
+    public ParallelInitialLoader(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Register a source to be loaded by {@link #start()}.
+     * 
+     * @param name name of the source used in the timings and in log messages
+     * @param source source to poll
+     * @param scheduler scheduler that polls the source after the initial load
+     * @return an empty configuration that will hold the properties of the source once its initial poll is applied
+     * @throws IllegalStateException if {@link #start()} has already been called
+     */
+    public synchronized DynamicConfiguration addSource(String name, PolledConfigurationSource source,
+            AbstractPollingScheduler scheduler) {
+        if (ready != null) {
+            throw new IllegalStateException("Sources cannot be added once loading has started");
+        }
+        Source added = new Source(name, source, scheduler);
+        added.configuration.prepareInitialPoll(source, scheduler);
+        sources.add(added);
+        return added.configuration;
+    }
+
+    /**
+     * Start the initial poll of all registered sources. Calling this method again returns the same future.
+     * 
+     * @return a future that completes once the results of all sources are applied. Its value maps the name
+     *         of each source, in the order they were registered, to the time in milliseconds its initial poll
+     *         took. If any source fails, the other sources are still loaded and the future then fails with
+     *         the first failure.
+     */
+    public synchronized ListenableFuture<Map<String, Long>> start() {
+        if (ready != null) {
+            return ready;
+        }
+        ready = SettableFuture.create();
+        if (sources.isEmpty()) {
+            ready.set(Collections.<String, Long>emptyMap());
+            return ready;
+        }
+        for (final Source source: sources) {
+            try {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        poll(source);
+                    }
+                });
+            } catch (Throwable e) {
+                pollCompleted(source, null, e, 0);
+            }
+        }
+        return ready;
+    }
+
+    private void poll(Source source) {
+        long start = System.nanoTime();
+        PollResult result = null;
+        Throwable failure = null;
+        try {
+            result = source.scheduler.initialPoll(source.source);
+        } catch (Throwable e) {
+            failure = e;
+        }
+        pollCompleted(source, result, failure, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private synchronized void pollCompleted(Source source, PollResult result, Throwable failure, long millis) {
+        source.polled = true;
+        source.result = result;
+        source.failure = failure;
+        source.millis = millis;
+        while (nextToApply < sources.size() && sources.get(nextToApply).polled) {
+            apply(sources.get(nextToApply++));
+        }
+        if (nextToApply == sources.size() && !ready.isDone()) {
+            complete();
+        }
+    }
+
+    private void apply(Source source) {
+        if (source.failure == null) {
+            try {
+                source.configuration.startPolling(source.result);
+            } catch (Throwable e) {
+                source.failure = e;
+            }
+        }
+        source.result = null;
+        if (source.failure != null) {
+            logger.error("Initial load of source " + source.name + " failed", source.failure);
+        } else {
+            logger.info("Initial load of source {} took {} ms", source.name, source.millis);
+        }
+    }
+
+    private void complete() {
+        Map<String, Long> timings = new LinkedHashMap<String, Long>();
+        Throwable failure = null;
+        for (Source source: sources) {
+            timings.put(source.name, source.millis);
+            if (failure == null && source.failure != null) {
+                failure = new RuntimeException("Unable to load source " + source.name, source.failure);
+            }
+        }
+        if (failure != null) {
+            ready.setException(failure);
+        } else {
+            ready.set(Collections.unmodifiableMap(timings));
+        }
+    }
+}
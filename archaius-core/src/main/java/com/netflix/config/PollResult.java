@@ -35,6 +35,16 @@ public class PollResult extends WatchedUpdateResult {
         return new PollResult(complete);        
     }
     
+    /**
+     * Create a full result that represents the complete content of the configuration source.
+     * @param complete map that contains all the properties
+     * @param checkPoint Object that served as a marker for this content, for example, a version or time stamp 
+     *        of the source
+     */
+    public static PollResult createFull(Map<String, Object> complete, Object checkPoint) {
+        return new PollResult(complete, checkPoint);
+    }
+    
     /**
      * Create a result that represents incremental changes from the configuration
      * source. 
@@ -58,8 +68,12 @@ public class PollResult extends WatchedUpdateResult {
     }
     
     PollResult(Map<String, Object> complete) {
+        this(complete, null);
+    }
+    
+    PollResult(Map<String, Object> complete, Object checkPoint) {
         super(complete);
-        this.checkPoint = null;
+        this.checkPoint = checkPoint;
     }
     
     PollResult(Map<String, Object> added, Map<String, Object> changed, Map<String, Object> deleted, Object checkPoint) {
@@ -0,0 +1,224 @@
+/**
+ * Copyright 2014 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.config;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded pool of daemon threads shared by all polled configuration sources, so that an application
+ * does not keep an idle thread per source. The number of threads is read from the system property
+ * {@value #THREADS_PROPERTY} when the pool is first used, and defaults to {@value #DEFAULT_THREADS}.
+ * <p>
+ * A task scheduled with a fixed delay never runs concurrently with itself, so a slow source holds at most one
+ * thread of the pool and cannot starve the other sources as long as the pool has more than one thread. Each
+ * scheduled task is represented by a {@link Handle} that cancels it and reports how long its runs waited
+ * for a thread past the time they were due. A task that computes its own delays is scheduled once and then
+ * rescheduled through its handle after each run, so that the metrics cover all of its runs.
+ */
+public final class SharedPollingExecutor {
+
+    /**
+     * System property to define the number of threads of the pool.
+     */
+    public static final String THREADS_PROPERTY = "archaius.polling.threads";
+
+    public static final int DEFAULT_THREADS = 4;
+
+    private static final Logger logger = LoggerFactory.getLogger(SharedPollingExecutor.class);
+    private static final long LATE_WARNING_MILLIS = 10000;
+    private static ScheduledThreadPoolExecutor executor;
+
+    private SharedPollingExecutor() {
+    }
+
+    /**
+     * A task scheduled on the shared pool.
+     */
+    public static final class Handle {
+        private final String name;
+        // the fields below are guarded by this
+        private ScheduledFuture<?> future;
+        private Runnable singleRun;
+        private boolean cancelled;
+        private volatile long dueNanos;
+        private final AtomicLong runs = new AtomicLong();
+        private volatile long lastQueueDelayMillis;
+        private volatile long maxQueueDelayMillis;
+
+        private Handle(String name, long initialDelayMillis) {
+            this.name = name;
+            this.dueNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(initialDelayMillis);
+        }
+
+        /**
+         * @param delayMillis fixed delay between runs, or -1 if the task sets its due time when it is rescheduled
+         */
+        private Runnable wrap(final Runnable task, final long delayMillis) {
+            return new Runnable() {
+                @Override
+                public void run() {
+                    long queueDelay = Math.max(0, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - dueNanos));
+                    lastQueueDelayMillis = queueDelay;
+                    if (queueDelay > maxQueueDelayMillis) {
+                        maxQueueDelayMillis = queueDelay;
+                    }
+                    if (queueDelay > LATE_WARNING_MILLIS) {
+                        logger.warn("Polling task {} started {} ms late, the polling pool may be too small", name, queueDelay);
+                    }
+                    runs.incrementAndGet();
+                    try {
+                        task.run();
+                    } finally {
+                        if (delayMillis >= 0) {
+                            dueNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+                        }
+                    }
+                }
+            };
+        }
+
+        /**
+         * Cancel the task. A run that is in progress is allowed to complete. Calling this method more than
+         * once has no effect.
+         */
+        public synchronized void cancel() {
+            cancelled = true;
+            if (future != null && future.cancel(false)) {
+                getExecutor().purge();
+            }
+        }
+
+        public synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Run a task scheduled with {@link SharedPollingExecutor#schedule(String, Runnable, long)} once more after
+         * the given delay. This has no effect if the task has been cancelled.
+         * 
+         * @throws IllegalStateException if the task was scheduled with a fixed delay
+         */
+        public synchronized void reschedule(long delayMillis) {
+            if (singleRun == null) {
+                throw new IllegalStateException("Task " + name + " is scheduled with a fixed delay");
+            }
+            if (cancelled) {
+                return;
+            }
+            dueNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+            future = getExecutor().schedule(singleRun, delayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * @return name of the task given when it was scheduled
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return number of times the task has started
+         */
+        public long getRunCount() {
+            return runs.get();
+        }
+
+        /**
+         * @return milliseconds the last run waited for a thread after it was due
+         */
+        public long getLastQueueDelayMillis() {
+            return lastQueueDelayMillis;
+        }
+
+        /**
+         * @return the longest time in milliseconds a run waited for a thread after it was due
+         */
+        public long getMaxQueueDelayMillis() {
+            return maxQueueDelayMillis;
+        }
+    }
+
+    private static synchronized ScheduledThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            int threads = DEFAULT_THREADS;
+            String threadsProperty = System.getProperty(THREADS_PROPERTY);
+            if (threadsProperty != null && threadsProperty.length() > 0) {
+                threads = Math.max(1, Integer.parseInt(threadsProperty));
+            }
+            final AtomicInteger count = new AtomicInteger();
+            executor = new ScheduledThreadPoolExecutor(threads, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "pollingConfigurationSource-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Run a task repeatedly, waiting for the given delay between the end of a run and the start of the next one.
+     * An exception thrown by the task is logged and does not stop the next runs.
+     * 
+     * @param name name of the task used in log messages
+     */
+    public static Handle scheduleWithFixedDelay(String name, final Runnable task, long initialDelayMillis, long delayMillis) {
+        Handle handle = new Handle(name, initialDelayMillis);
+        synchronized (handle) {
+            handle.future = getExecutor().scheduleWithFixedDelay(handle.wrap(catchingExceptions(name, task), delayMillis),
+                    initialDelayMillis, delayMillis, TimeUnit.MILLISECONDS);
+        }
+        return handle;
+    }
+
+    /**
+     * Run a task once after the given delay. The task can be run again with {@link Handle#reschedule(long)}.
+     * 
+     * @param name name of the task used in log messages
+     */
+    public static Handle schedule(String name, Runnable task, long delayMillis) {
+        Handle handle = new Handle(name, delayMillis);
+        synchronized (handle) {
+            handle.singleRun = handle.wrap(catchingExceptions(name, task), -1);
+            handle.future = getExecutor().schedule(handle.singleRun, delayMillis, TimeUnit.MILLISECONDS);
+        }
+        return handle;
+    }
+
+    private static Runnable catchingExceptions(final String name, final Runnable task) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    // an exception would silently cancel all further runs of the task
+                    logger.error("Error in polling task " + name, e);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,313 @@
+/**
+ * Copyright 2014 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.config.sources;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.netflix.config.PollResult;
+import com.netflix.config.PolledConfigurationSource;
+
+/**
+ * A polled configuration source that keeps a snapshot of the content of another source in a local file,
+ * so that an instance can start with the last known configuration when the source is slow or unavailable.
+ * <p>
+ * Every result with changes returned by the wrapped source is applied to the snapshot, which is then written
+ * to the file if its content differs from what was last written or read. If the initial poll of the wrapped source fails, the snapshot is returned as a full result
+ * instead of failing, and the wrapped source is polled again from scratch on the next poll. With
+ * <code>snapshotFirst</code> set, the snapshot is returned by the initial poll without polling the wrapped
+ * source at all, and the live content is reconciled on the next poll: the polling scheduler then only applies
+ * the properties that differ from the snapshot.
+ * <p>
+ * Properties are stored as strings in a binary file made of a header and a length prefixed list of UTF-8 keys
+ * and values, which is memory mapped when it is read. The elements of a multi-valued property are stored one
+ * by one and restored as a list. The file is written to a temporary file first and then
+ * renamed, so a crash while writing does not leave a truncated snapshot behind.
+ */
+public class SnapshotPolledConfigurationSource implements PolledConfigurationSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotPolledConfigurationSource.class);
+    private static final int MAGIC = 0x41524348;
+    private static final int VERSION = 2;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final PolledConfigurationSource source;
+    private final File snapshotFile;
+    private final boolean snapshotFirst;
+    // the fields below are guarded by this
+    private Map<String, Object> snapshot;
+    private Map<String, Object> savedSnapshot;
+    private boolean servingSnapshot;
+
+    /**
+     * Create an instance that only returns the snapshot if the initial poll of the source fails.
+     * 
+     * @param source source to poll
+     * @param snapshotFile file that holds the snapshot
+     */
+    public SnapshotPolledConfigurationSource(PolledConfigurationSource source, File snapshotFile) {
+        this(source, snapshotFile, false);
+    }
+
+    /**
+     * @param source source to poll
+     * @param snapshotFile file that holds the snapshot
+     * @param snapshotFirst true if the initial poll should return the snapshot, if there is one, without
+     *                      polling the source
+     */
+    public SnapshotPolledConfigurationSource(PolledConfigurationSource source, File snapshotFile, boolean snapshotFirst) {
+        this.source = source;
+        this.snapshotFile = snapshotFile;
+        this.snapshotFirst = snapshotFirst;
+    }
+
+    @Override
+    public synchronized PollResult poll(boolean initial, Object checkPoint) throws Exception {
+        if (initial && snapshotFirst) {
+            PollResult result = loadSnapshot();
+            if (result != null) {
+                return result;
+            }
+        }
+        PollResult result;
+        try {
+            // the check point returned with the snapshot is meaningless to the source
+            result = servingSnapshot ? source.poll(true, null) : source.poll(initial, checkPoint);
+        } catch (Exception e) {
+            if (initial) {
+                PollResult snapshotResult = loadSnapshot();
+                if (snapshotResult != null) {
+                    logger.warn("Initial poll of " + source + " failed, using the snapshot in " + snapshotFile, e);
+                    return snapshotResult;
+                }
+            }
+            throw e;
+        }
+        servingSnapshot = false;
+        updateSnapshot(result);
+        return result;
+    }
+
+    private PollResult loadSnapshot() {
+        Map<String, Object> properties;
+        try {
+            properties = readSnapshot(snapshotFile);
+        } catch (IOException e) {
+            logger.warn("Unable to read the snapshot in " + snapshotFile, e);
+            return null;
+        }
+        if (properties == null) {
+            return null;
+        }
+        servingSnapshot = true;
+        snapshot = properties;
+        savedSnapshot = properties;
+        return PollResult.createFull(new HashMap<String, Object>(properties));
+    }
+
+    private void updateSnapshot(PollResult result) {
+        if (result == null || !result.hasChanges()) {
+            return;
+        }
+        Map<String, Object> updated;
+        if (!result.isIncremental()) {
+            if (result.getComplete() == null) {
+                return;
+            }
+            updated = new HashMap<String, Object>();
+            putAll(updated, result.getComplete());
+        } else if (snapshot == null) {
+            // without a full result to start from, the changes cannot be turned into a snapshot
+            return;
+        } else {
+            // the saved snapshot may be the same map, so it is not changed in place
+            updated = new HashMap<String, Object>(snapshot);
+            putAll(updated, result.getAdded());
+            putAll(updated, result.getChanged());
+            if (result.getDeleted() != null) {
+                updated.keySet().removeAll(result.getDeleted().keySet());
+            }
+        }
+        snapshot = updated;
+        // sources that return full results report changes on every poll, even when nothing changed
+        if (updated.equals(savedSnapshot)) {
+            return;
+        }
+        try {
+            writeSnapshot(snapshotFile, updated);
+            savedSnapshot = updated;
+        } catch (IOException e) {
+            logger.warn("Unable to write the snapshot to " + snapshotFile, e);
+        }
+    }
+
+    private static void putAll(Map<String, Object> snapshot, Map<String, Object> properties) {
+        if (properties != null) {
+            for (Map.Entry<String, Object> entry: properties.entrySet()) {
+                snapshot.put(entry.getKey(), toSnapshotValue(entry.getValue()));
+            }
+        }
+    }
+
+    /**
+     * Convert a value to the form it has once it is read back from a snapshot: a string, or a list of strings
+     * for a multi-valued property.
+     */
+    private static Object toSnapshotValue(Object value) {
+        Collection<?> values;
+        if (value instanceof Collection) {
+            values = (Collection<?>) value;
+        } else if (value instanceof Object[]) {
+            values = Arrays.asList((Object[]) value);
+        } else {
+            return String.valueOf(value);
+        }
+        if (values.size() == 1) {
+            return String.valueOf(values.iterator().next());
+        }
+        List<String> list = new ArrayList<String>(values.size());
+        for (Object element: values) {
+            list.add(String.valueOf(element));
+        }
+        return list;
+    }
+
+    /**
+     * Read the properties saved in a snapshot file.
+     * 
+     * @return the properties, or null if the file does not exist
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    static Map<String, Object> readSnapshot(File file) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a configuration snapshot: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported version " + version + " of configuration snapshot: " + file);
+            }
+            int count = buffer.getInt();
+            Map<String, Object> properties = new HashMap<String, Object>(Math.max(16, count * 4 / 3 + 1));
+            for (int i = 0; i < count; i++) {
+                String key = readString(buffer);
+                properties.put(key, readValue(buffer));
+            }
+            return properties;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated configuration snapshot: " + file);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static Object readValue(ByteBuffer buffer) throws IOException {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining() / 4) {
+            throw new IOException("Invalid value count " + count + " in configuration snapshot");
+        }
+        if (count == 1) {
+            return readString(buffer);
+        }
+        List<String> values = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(readString(buffer));
+        }
+        return values;
+    }
+
+    private static String readString(ByteBuffer buffer) throws IOException {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IOException("Invalid string length " + length + " in configuration snapshot");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * Write properties to a snapshot file, converting the values, or the elements of multi-valued properties,
+     * to strings.
+     */
+    static void writeSnapshot(File file, Map<String, Object> properties) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Unable to create directory " + parent);
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(properties.size());
+            for (Map.Entry<String, Object> entry: properties.entrySet()) {
+                writeString(out, entry.getKey());
+                Object value = toSnapshotValue(entry.getValue());
+                if (value instanceof List) {
+                    List<?> values = (List<?>) value;
+                    out.writeInt(values.size());
+                    for (Object element: values) {
+                        writeString(out, (String) element);
+                    }
+                } else {
+                    out.writeInt(1);
+                    writeString(out, (String) value);
+                }
+            }
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(file) && !(file.delete() && temp.renameTo(file))) {
+            throw new IOException("Unable to rename " + temp + " to " + file);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @Override
+    public String toString() {
+        return "SnapshotPolledConfigurationSource [source=" + source + ", snapshotFile=" + snapshotFile + "]";
+    }
+}
@@ -15,9 +15,13 @@
  */
 package com.netflix.config.sources;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.net.URLConnection;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -39,6 +43,12 @@ import com.netflix.config.util.ConfigurationUtils;
  * it always returns the complete union of properties defined in all files. If one property
  * is defined in more than one URL, the value in file later on the list will override
  * the value in the previous one. The content of the URL should conform to the properties file format.
+ * <p>
+ * The check point of each result records the version of every URL: the last modified time and length of
+ * <code>file:</code> URLs, and the <code>ETag</code> and <code>Last-Modified</code> headers of <code>http:</code>
+ * and <code>https:</code> URLs, along with the properties read from it. When polled with that check point,
+ * only the URLs that have changed since are read again, HTTP URLs with a single conditional request. If none
+ * of the URLs has changed, the source returns an empty incremental result without reading or parsing any content.
  * 
  * @author awang
  *
@@ -166,9 +176,13 @@ public class URLConfigurationSource implements PolledConfigurationSource {
      * returns the complete union of properties defined in all URLs. If one
      * property is defined in content of more than one URL, the value in file later on the
      * list will override the value in the previous one. 
+     * <p>
+     * If the check point is one returned by a previous poll, only the URLs that have changed since
+     * are read again, and if none of them has changed, an incremental result without any change
+     * is returned instead.
      * 
-     * @param initial this parameter is ignored by the implementation
-     * @param checkPoint this parameter is ignored by the implementation
+     * @param initial if true, the content is always retrieved
+     * @param checkPoint check point of the last poll result, which records the versions of the URLs
      * @throws IOException IOException occurred in file operation
      */
     @Override
@@ -177,15 +191,121 @@ public class URLConfigurationSource implements PolledConfigurationSource {
         if (configUrls == null || configUrls.length == 0) {
             return PollResult.createFull(null);
         }
+        URLVersion[] previous = null;
+        if (!initial && checkPoint instanceof URLVersions && ((URLVersions) checkPoint).urls == configUrls) {
+            previous = ((URLVersions) checkPoint).versions;
+        }
+        URLVersion[] versions = new URLVersion[configUrls.length];
+        boolean changed = previous == null;
+        for (int i = 0; i < configUrls.length; i++) {
+            URLVersion version = previous == null ? null : previous[i];
+            versions[i] = load(configUrls[i], version);
+            changed |= versions[i] != version;
+        }
+        if (!changed) {
+            logger.debug("No change in URLs {}", Arrays.asList(configUrls));
+            return PollResult.createIncremental(null, null, null, checkPoint);
+        }
         Map<String, Object> map = new HashMap<String, Object>();
-        for (URL url: configUrls) {
-            InputStream fin = url.openStream();
-            Properties props = ConfigurationUtils.loadPropertiesFromInputStream(fin);
-            for (Entry<Object, Object> entry: props.entrySet()) {
-                map.put((String) entry.getKey(), entry.getValue());
+        for (URLVersion version: versions) {
+            map.putAll(version.properties);
+        }
+        return PollResult.createFull(map, new URLVersions(configUrls, versions));
+    }
+
+    /**
+     * Reads the URL unless it is known not to have changed since the given version.
+     *
+     * @param previous version read by the last poll, or null
+     * @return the previous version if the URL has not changed, otherwise the version just read
+     */
+    private static URLVersion load(URL url, URLVersion previous) throws IOException {
+        File file = getFile(url);
+        if (file != null) {
+            // the version is taken before reading so that a change during the read is seen by the next poll,
+            // and a file that has been deleted has a last modified time of 0 and fails the read
+            long lastModified = file.lastModified();
+            long length = file.length();
+            if (previous != null && lastModified == previous.lastModified && length == previous.length
+                    && lastModified != 0) {
+                return previous;
             }
+            return new URLVersion(lastModified, length, null, read(url.openStream()));
+        }
+        URLConnection connection = url.openConnection();
+        if (!(connection instanceof HttpURLConnection)) {
+            return new URLVersion(-1, -1, null, read(connection.getInputStream()));
+        }
+        HttpURLConnection httpConnection = (HttpURLConnection) connection;
+        if (previous != null && (previous.etag != null || previous.lastModified > 0)) {
+            if (previous.etag != null) {
+                httpConnection.setRequestProperty("If-None-Match", previous.etag);
+            }
+            if (previous.lastModified > 0) {
+                httpConnection.setIfModifiedSince(previous.lastModified);
+            }
+            if (httpConnection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                httpConnection.disconnect();
+                return previous;
+            }
+        }
+        // the body of a conditional request that was not answered with 304 is the new content
+        return new URLVersion(httpConnection.getLastModified(), -1, httpConnection.getHeaderField("ETag"),
+                read(httpConnection.getInputStream()));
+    }
+
+    private static Map<String, Object> read(InputStream fin) throws IOException {
+        Properties props = ConfigurationUtils.loadPropertiesFromInputStream(fin);
+        Map<String, Object> map = new HashMap<String, Object>();
+        for (Entry<Object, Object> entry: props.entrySet()) {
+            map.put((String) entry.getKey(), entry.getValue());
+        }
+        return map;
+    }
+
+    private static File getFile(URL url) {
+        if (!"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            return new File(url.toURI());
+        } catch (URISyntaxException e) {
+            return new File(url.getPath());
+        } catch (IllegalArgumentException e) {
+            // URL with authority or query component that does not denote a local file
+            return null;
+        }
+    }
+
+    /**
+     * Version of the content of one URL at the time it was read, and the properties read from it.
+     * A URL that is neither a file nor an HTTP URL has no version information and is always read again.
+     */
+    private static final class URLVersion {
+        final long lastModified;
+        final long length;
+        final String etag;
+        final Map<String, Object> properties;
+
+        URLVersion(long lastModified, long length, String etag, Map<String, Object> properties) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.etag = etag;
+            this.properties = properties;
+        }
+    }
+
+    /**
+     * Check point of a poll result, holding the versions of all URLs of the source that produced it.
+     */
+    private static final class URLVersions {
+        final URL[] urls;
+        final URLVersion[] versions;
+
+        URLVersions(URL[] urls, URLVersion[] versions) {
+            this.urls = urls;
+            this.versions = versions;
         }
-        return PollResult.createFull(map);
     }
 
     @Override
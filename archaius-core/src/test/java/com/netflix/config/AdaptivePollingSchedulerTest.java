@@ -0,0 +1,114 @@
+/**
+ * Copyright 2014 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.config;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.netflix.config.PollListener.EventType;
+import com.netflix.config.PollingSourceTest.DummyPollingSource;
+
+public class AdaptivePollingSchedulerTest {
+
+    @BeforeClass
+    public static void setUp() {
+        AbstractConfiguration config = ConfigurationManager.getConfigInstance();
+        config.setProperty("test.adaptive.delayMills", "1000");
+        config.setProperty("test.adaptive.minDelayMills", "100");
+        config.setProperty("test.adaptive.maxDelayMills", "4000");
+        config.setProperty("test.adaptive.jitter", "0");
+        config.setProperty("test.fast.delayMills", "10");
+        config.setProperty("test.fast.minDelayMills", "10");
+        config.setProperty("test.fast.maxDelayMills", "20");
+        System.setProperty("test.fast.initialDelayMills", "0");
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        System.clearProperty("test.fast.initialDelayMills");
+    }
+
+    @Test
+    public void testDelayAdaptsToPolls() {
+        AdaptivePollingScheduler scheduler = new AdaptivePollingScheduler("test.adaptive", false);
+        PollResult full = PollResult.createFull(Collections.<String, Object>singletonMap("prop", "value"));
+        // the first full result is a change
+        scheduler.recordPoll(EventType.POLL_SUCCESS, full);
+        assertEquals(500, scheduler.nextDelay());
+        // the same content again is not
+        scheduler.recordPoll(EventType.POLL_SUCCESS, PollResult.createFull(Collections.<String, Object>singletonMap("prop", "value")));
+        assertEquals(625, scheduler.nextDelay());
+        scheduler.recordPoll(EventType.POLL_SUCCESS, PollResult.createIncremental(null, null, null, null));
+        assertEquals(781, scheduler.nextDelay());
+
+        // failures back off exponentially up to the maximum delay
+        scheduler.recordPoll(EventType.POLL_FAILURE, null);
+        assertEquals(1562, scheduler.nextDelay());
+        scheduler.recordPoll(EventType.POLL_FAILURE, null);
+        assertEquals(3124, scheduler.nextDelay());
+        scheduler.recordPoll(EventType.POLL_FAILURE, null);
+        assertEquals(4000, scheduler.nextDelay());
+
+        // changes speed polling up again, down to the minimum delay
+        for (int i = 0; i < 10; i++) {
+            scheduler.recordPoll(EventType.POLL_SUCCESS,
+                    PollResult.createIncremental(Collections.<String, Object>singletonMap("prop", "value" + i), null, null, null));
+            scheduler.nextDelay();
+        }
+        assertEquals(100, scheduler.nextDelay());
+        assertEquals(100, scheduler.applyJitter(100));
+    }
+
+    @Test
+    public void testJitter() {
+        ConfigurationManager.getConfigInstance().setProperty("test.jitter.jitter", "0.5");
+        AdaptivePollingScheduler scheduler = new AdaptivePollingScheduler("test.jitter", false);
+        boolean varied = false;
+        for (int i = 0; i < 100; i++) {
+            long delay = scheduler.applyJitter(1000);
+            assertTrue(delay >= 500 && delay <= 1500);
+            varied |= delay != 1000;
+        }
+        assertTrue(varied);
+    }
+
+    @Test
+    public void testPolling() throws Exception {
+        ConcurrentMapConfiguration config = new ConcurrentMapConfiguration();
+        DummyPollingSource source = new DummyPollingSource(false);
+        source.setFull("prop1=value1");
+        AdaptivePollingScheduler scheduler = new AdaptivePollingScheduler("test.fast", false);
+        scheduler.startPolling(source, config);
+        try {
+            assertEquals("value1", config.getProperty("prop1"));
+            source.setFull("prop1=changed");
+            Thread.sleep(300);
+            assertEquals("changed", config.getProperty("prop1"));
+            // the same task is rescheduled after each poll
+            SharedPollingExecutor.Handle handle = scheduler.getHandle();
+            assertEquals("adaptivePollingConfigurationSource[" + source + "]", handle.getName());
+            assertTrue(handle.getRunCount() > 2);
+        } finally {
+            scheduler.stop();
+        }
+    }
+}
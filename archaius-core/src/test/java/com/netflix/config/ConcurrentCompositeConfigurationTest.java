@@ -17,7 +17,12 @@ package com.netflix.config;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.commons.configuration.AbstractConfiguration;
 import org.apache.commons.configuration.BaseConfiguration;
@@ -118,4 +123,198 @@ public class ConcurrentCompositeConfigurationTest {
         assertFalse(config.getConfigurationNames().contains("another container"));
         assertFalse(config.getConfigurations().contains(config4));
     }
+
+    @Test
+    public void testResolutionAcrossLayerChanges() {
+        ConcurrentCompositeConfiguration config = new ConcurrentCompositeConfiguration();
+        ConcurrentMapConfiguration low = new ConcurrentMapConfiguration();
+        low.setProperty("prop1", "low");
+        low.setProperty("prop2", "low");
+        config.addConfiguration(low, "low");
+        assertEquals("low", config.getProperty("prop1"));
+        assertSame(low, config.getSource("prop1"));
+
+        ConcurrentMapConfiguration high = new ConcurrentMapConfiguration();
+        high.setProperty("prop1", "high");
+        config.addConfigurationAtFront(high, "high");
+        assertEquals("high", config.getProperty("prop1"));
+        assertEquals("low", config.getProperty("prop2"));
+        assertSame(high, config.getSource("prop1"));
+
+        high.setProperty("prop2", "high");
+        assertEquals("high", config.getProperty("prop2"));
+        high.clearProperty("prop2");
+        assertEquals("low", config.getProperty("prop2"));
+        low.clearProperty("prop2");
+        assertNull(config.getProperty("prop2"));
+        assertFalse(config.containsKey("prop2"));
+
+        high.addProperty("prop3", "a");
+        high.addProperty("prop3", "b");
+        assertEquals(2, ((List<?>) config.getProperty("prop3")).size());
+
+        high.clear();
+        assertEquals("low", config.getProperty("prop1"));
+        assertFalse(config.containsKey("prop3"));
+        high.setProperty("prop1", "high");
+        config.removeConfiguration("high");
+        assertEquals("low", config.getProperty("prop1"));
+        config.setContainerConfigurationIndex(0);
+        config.setProperty("prop1", "container");
+        assertEquals("container", config.getProperty("prop1"));
+        config.setOverrideProperty("prop1", "override");
+        assertEquals("override", config.getProperty("prop1"));
+        config.clearOverrideProperty("prop1");
+        assertEquals("container", config.getProperty("prop1"));
+    }
+
+    @Test
+    public void testChildWithoutEventsIsReadLive() {
+        ConcurrentCompositeConfiguration config = new ConcurrentCompositeConfiguration();
+        AbstractConfiguration base = new BaseConfiguration();
+        config.addConfiguration(base, "base");
+        base.clearConfigurationListeners();
+        base.setProperty("prop1", "value");
+        assertEquals("value", config.getProperty("prop1"));
+        assertTrue(config.containsKey("prop1"));
+        assertSame(base, config.getSource("prop1"));
+    }
+
+    @Test
+    public void testKeysAreMergedWithoutDuplicates() {
+        ConcurrentCompositeConfiguration config = new ConcurrentCompositeConfiguration();
+        ConcurrentMapConfiguration high = new ConcurrentMapConfiguration();
+        ConcurrentMapConfiguration low = new ConcurrentMapConfiguration();
+        config.addConfiguration(high, "high");
+        config.addConfiguration(low, "low");
+        high.setProperty("prop1", "high");
+        low.setProperty("prop1", "low");
+        low.setProperty("prop2", "low");
+        config.setOverrideProperty("prop2", "override");
+        config.setOverrideProperty("prop3", "override");
+        assertEquals(Arrays.asList("prop1", "prop2", "prop3"), sortedKeys(config.getKeys()));
+
+        // a child that does not report its changes is merged as the keys are iterated
+        AbstractConfiguration base = new BaseConfiguration();
+        config.addConfiguration(base, "base");
+        base.clearConfigurationListeners();
+        base.setProperty("prop1", "base");
+        base.setProperty("prop4", "base");
+        assertEquals(Arrays.asList("prop1", "prop2", "prop3", "prop4"), sortedKeys(config.getKeys()));
+        Iterator<String> keys = config.getKeys();
+        while (keys.hasNext()) {
+            keys.next();
+        }
+        assertFalse(keys.hasNext());
+    }
+
+    @Test
+    public void testNestedCompositeIsIndexedOnlyWhenItIsIndexed() {
+        ConcurrentCompositeConfiguration outer = new ConcurrentCompositeConfiguration();
+        ConcurrentCompositeConfiguration inner = new ConcurrentCompositeConfiguration();
+        outer.addConfiguration(inner, "inner");
+        ConcurrentMapConfiguration map = new ConcurrentMapConfiguration();
+        inner.addConfiguration(map, "map");
+        map.setProperty("prop1", "map");
+        assertEquals("map", outer.getProperty("prop1"));
+
+        // a plain configuration in the nested composite is read live
+        AbstractConfiguration base = new BaseConfiguration();
+        inner.addConfiguration(base, "base");
+        base.setProperty("prop2", "value1");
+        base.setProperty("prop2", "value2");
+        assertEquals("value2", outer.getProperty("prop2"));
+        inner.removeConfiguration(base);
+
+        // a nested composite that stops propagating events is read live as well
+        map.setProperty("prop3", "value1");
+        inner.setPropagateEventFromSubConfigurations(false);
+        map.setProperty("prop3", "value2");
+        map.setProperty("prop4", "value");
+        assertEquals("value2", outer.getProperty("prop3"));
+        assertEquals("value", outer.getProperty("prop4"));
+        inner.setPropagateEventFromSubConfigurations(true);
+        map.setProperty("prop4", "changed");
+        assertEquals("changed", outer.getProperty("prop4"));
+    }
+
+    @Test
+    public void testChangeDuringRebuildIsIndexed() throws Exception {
+        ConcurrentCompositeConfiguration config = new ConcurrentCompositeConfiguration();
+        final ConcurrentMapConfiguration first = new ConcurrentMapConfiguration();
+        first.setProperty("prop1", "old");
+        final AtomicBoolean armed = new AtomicBoolean();
+        final Thread[] writer = new Thread[1];
+        // changes the first configuration after the rebuild has read it
+        ConcurrentMapConfiguration second = new ConcurrentMapConfiguration() {
+            @Override
+            public Iterator<String> getKeys() {
+                if (armed.compareAndSet(true, false)) {
+                    writer[0] = new Thread() {
+                        @Override
+                        public void run() {
+                            first.setProperty("prop1", "new");
+                        }
+                    };
+                    writer[0].start();
+                    try {
+                        writer[0].join(200);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.getKeys();
+            }
+        };
+        AbstractConfiguration base = new BaseConfiguration();
+        config.addConfiguration(first, "first");
+        config.addConfiguration(second, "second");
+        config.addConfiguration(base, "base");
+        assertEquals("old", config.getProperty("prop1"));
+
+        // removing the configuration without events indexes the composite again
+        armed.set(true);
+        config.removeConfiguration(base);
+        writer[0].join();
+        assertEquals("new", config.getProperty("prop1"));
+        assertEquals("new", config.getString("prop1"));
+        assertSame(first, config.getSource("prop1"));
+    }
+
+    @Test
+    public void testKeysAreInConfigurationOrder() {
+        ConcurrentCompositeConfiguration config = new ConcurrentCompositeConfiguration();
+        ConcurrentMapConfiguration high = new ConcurrentMapConfiguration();
+        ConcurrentMapConfiguration low = new ConcurrentMapConfiguration();
+        config.addConfiguration(high, "high");
+        config.addConfiguration(low, "low");
+        low.setProperty("low", "low");
+        low.setProperty("shared", "low");
+        high.setProperty("high", "high");
+        high.setProperty("shared", "high");
+        config.setOverrideProperty("override", "override");
+        List<String> keys = new ArrayList<String>();
+        for (Iterator<String> it = config.getKeys(); it.hasNext();) {
+            keys.add(it.next());
+        }
+        assertEquals("override", keys.get(0));
+        assertEquals(Arrays.asList("high", "shared"), sorted(keys.subList(1, 3)));
+        assertEquals("low", keys.get(3));
+        assertEquals(4, keys.size());
+    }
+
+    private static List<String> sorted(List<String> list) {
+        List<String> copy = new ArrayList<String>(list);
+        Collections.sort(copy);
+        return copy;
+    }
+
+    private static List<String> sortedKeys(Iterator<String> keys) {
+        List<String> list = new ArrayList<String>();
+        while (keys.hasNext()) {
+            list.add(keys.next());
+        }
+        Collections.sort(list);
+        return list;
+    }
 }
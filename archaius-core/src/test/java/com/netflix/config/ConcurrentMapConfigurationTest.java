@@ -17,17 +17,20 @@ package com.netflix.config;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -41,6 +44,8 @@ import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.netflix.config.validation.ValidationException;
+
 public class ConcurrentMapConfigurationTest {
 
     @BeforeClass
@@ -296,4 +301,192 @@ public class ConcurrentMapConfigurationTest {
         System.setProperty(ConcurrentMapConfiguration.DISABLE_DELIMITER_PARSING, "false");
 
     }
+
+    @Test
+    public void testApplyChanges() {
+        ConcurrentMapConfiguration conf = new ConcurrentMapConfiguration();
+        conf.setProperty("toBeCleared", "value");
+        conf.setProperty("unchanged", "value");
+        conf.setProperty("changed", "value");
+        final List<ConfigurationEvent> events = new ArrayList<ConfigurationEvent>();
+        final List<ConfigurationEvent> batchEvents = new ArrayList<ConfigurationEvent>();
+        conf.addConfigurationListener(new ConfigurationListener() {
+            @Override
+            public void configurationChanged(ConfigurationEvent event) {
+                if ("invalid".equals(event.getPropertyName()) && event.isBeforeUpdate()) {
+                    throw new ValidationException("invalid");
+                }
+                events.add(event);
+            }
+        });
+        conf.addConfigurationListener(new BatchConfigurationListener() {
+            @Override
+            public void configurationChanged(ConfigurationEvent event) {
+                if (!event.isBeforeUpdate()) {
+                    batchEvents.add(event);
+                }
+            }
+        });
+        Map<String, Object> toSet = new LinkedHashMap<String, Object>();
+        toSet.put("newKey", "newValue");
+        toSet.put("changed", "newValue");
+        toSet.put("invalid", "x");
+        conf.applyChanges(toSet, Arrays.asList("toBeCleared"));
+        assertEquals("newValue", conf.getProperty("newKey"));
+        assertEquals("newValue", conf.getProperty("changed"));
+        assertFalse(conf.containsKey("invalid"));
+        assertFalse(conf.containsKey("toBeCleared"));
+        assertEquals("value", conf.getProperty("unchanged"));
+
+        // a plain listener gets the before and after update events of every applied key
+        List<ConfigurationEvent> afterUpdate = new ArrayList<ConfigurationEvent>();
+        for (ConfigurationEvent event: events) {
+            if (!event.isBeforeUpdate()) {
+                afterUpdate.add(event);
+            }
+        }
+        assertEquals(3, events.size() - afterUpdate.size());
+        assertEquals(3, afterUpdate.size());
+        assertEquals(AbstractConfiguration.EVENT_ADD_PROPERTY, afterUpdate.get(0).getType());
+        assertEquals("newKey", afterUpdate.get(0).getPropertyName());
+        assertEquals(AbstractConfiguration.EVENT_SET_PROPERTY, afterUpdate.get(1).getType());
+        assertEquals("changed", afterUpdate.get(1).getPropertyName());
+        assertEquals(AbstractConfiguration.EVENT_CLEAR_PROPERTY, afterUpdate.get(2).getType());
+        assertEquals("toBeCleared", afterUpdate.get(2).getPropertyName());
+
+        // a batch listener gets a single after update event for the batch
+        assertEquals(1, batchEvents.size());
+        assertEquals(ConcurrentMapConfiguration.EVENT_BATCH_UPDATE, batchEvents.get(0).getType());
+        Map<?, ?> changes = (Map<?, ?>) batchEvents.get(0).getPropertyValue();
+        assertEquals(3, changes.size());
+        assertEquals("newValue", changes.get("newKey"));
+        assertTrue(changes.containsKey("toBeCleared"));
+        assertNull(changes.get("toBeCleared"));
+    }
+
+    @Test
+    public void testInternStrings() {
+        System.setProperty(ConcurrentMapConfiguration.INTERN_STRINGS, "true");
+        try {
+            ConcurrentMapConfiguration conf1 = new ConcurrentMapConfiguration();
+            ConcurrentMapConfiguration conf2 = new ConcurrentMapConfiguration();
+            conf1.setProperty(new String("some.long.key"), new String("value"));
+            conf2.setProperty(new String("some.long.key"), new String("value"));
+            conf1.addProperty("added", new String("value"));
+            conf2.setProperty("list", new String("value,other"));
+            assertEquals("value", conf1.getProperty("some.long.key"));
+            assertSame(conf1.getProperty("some.long.key"), conf2.getProperty("some.long.key"));
+            assertSame(conf1.getProperty("some.long.key"), conf1.getProperty("added"));
+            assertSame(conf1.getProperty("some.long.key"), ((List<?>) conf2.getProperty("list")).get(0));
+            assertSame(findKey(conf1, "some.long.key"), findKey(conf2, "some.long.key"));
+            // keys added after the prefix index is built are interned as well
+            conf1.getKeys("some");
+            conf2.setProperty(new String("some.added.key"), "value");
+            conf1.addProperty(new String("some.added.key"), "value");
+            assertSame(findKey(conf2, "some.added.key"), conf1.getKeys("some.added").next());
+        } finally {
+            System.clearProperty(ConcurrentMapConfiguration.INTERN_STRINGS);
+        }
+        ConcurrentMapConfiguration conf = new ConcurrentMapConfiguration();
+        String value = new String("value");
+        conf.setProperty("key", value);
+        assertSame(value, conf.getProperty("key"));
+    }
+
+    @Test
+    public void testGetKeysWithPrefix() {
+        ConcurrentMapConfiguration conf = new ConcurrentMapConfiguration();
+        conf.setProperty("ribbon", "1");
+        conf.setProperty("ribbon.a", "1");
+        conf.setProperty("ribbon.b.c", "1");
+        conf.setProperty("ribbonx", "1");
+        conf.setProperty("ribbo", "1");
+        conf.setProperty("other.ribbon.a", "1");
+        assertEquals(new HashSet<String>(Arrays.asList("ribbon", "ribbon.a", "ribbon.b.c")), toSet(conf.getKeys("ribbon")));
+        assertFalse(conf.getKeys("ribbo.").hasNext());
+
+        // the index follows changes made after it is built
+        conf.clearProperty("ribbon.a");
+        conf.addProperty("ribbon.z", "1");
+        conf.setProperty("ribbon.list", "1,2");
+        assertEquals(new HashSet<String>(Arrays.asList("ribbon", "ribbon.b.c", "ribbon.z", "ribbon.list")), toSet(conf.getKeys("ribbon")));
+        conf.clear();
+        assertFalse(conf.getKeys("ribbon").hasNext());
+        conf.setProperty("ribbon.a", "1");
+        assertEquals(new HashSet<String>(Arrays.asList("ribbon.a")), toSet(conf.getKeys("ribbon")));
+    }
+
+    @Test
+    public void testAddPropertyKeepsSnapshots() {
+        ConcurrentMapConfiguration conf = new ConcurrentMapConfiguration();
+        conf.addProperty("list", "0");
+        conf.addProperty("list", "1");
+        List<?> snapshot = (List<?>) conf.getProperty("list");
+        conf.addProperty("list", "2");
+        conf.addProperty("list", "3");
+        assertEquals(Arrays.asList("0", "1"), snapshot);
+        assertEquals(Arrays.asList("0", "1", "2", "3"), conf.getProperty("list"));
+        try {
+            snapshot.clear();
+            fail("values of a property should not be modifiable");
+        } catch (UnsupportedOperationException e) {
+        }
+
+        // lists derived from the same list do not see each other's values
+        ImmutableValueList<String> base = ImmutableValueList.copyOf(Arrays.asList("a", "b"));
+        List<String> first = base.with("c");
+        List<String> second = base.with("d");
+        assertEquals(Arrays.asList("a", "b", "c"), first);
+        assertEquals(Arrays.asList("a", "b", "d"), second);
+        assertEquals(Arrays.asList("a", "b"), base);
+    }
+
+    @Test
+    public void testConcurrentAddProperty() throws Exception {
+        final ConcurrentMapConfiguration conf = new ConcurrentMapConfiguration();
+        final int threads = 4;
+        final int valuesPerThread = 1000;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            final int thread = i;
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < valuesPerThread; j++) {
+                        conf.addProperty("values", thread + "-" + j);
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        List<?> values = (List<?>) conf.getProperty("values");
+        assertEquals(threads * valuesPerThread, values.size());
+        assertEquals(threads * valuesPerThread, new HashSet<Object>(values).size());
+    }
+
+    private static Set<Object> toSet(Iterator<?> iterator) {
+        Set<Object> set = new HashSet<Object>();
+        while (iterator.hasNext()) {
+            set.add(iterator.next());
+        }
+        return set;
+    }
+
+    private static Object findKey(Configuration conf, String key) {
+        for (Iterator<?> i = conf.getKeys(); i.hasNext();) {
+            Object next = i.next();
+            if (key.equals(next)) {
+                return next;
+            }
+        }
+        return null;
+    }
 }
@@ -26,6 +26,7 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Test;
 
+import com.google.common.base.Function;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.netflix.config.DynamicContextualProperty.Value;
@@ -152,4 +153,68 @@ public class DynamicContextualPropertyTest {
         assertEquals(7, ref.get().intValue());
         assertEquals(7, prop.getValue().intValue());
     }
+
+    @Test
+    public void testCustomPredicateIsEvaluatedOnEveryCall() {
+        final AtomicReference<String> context = new AtomicReference<String>("v1");
+        DefaultContextualPredicate predicate = new DefaultContextualPredicate(new Function<String, String>() {
+            @Override
+            public String apply(String input) {
+                return context.get();
+            }
+        });
+        ConfigurationManager.getConfigInstance().setProperty("propWithCustomPredicate",
+                "[{\"value\":5,\"if\":{\"d1\":[\"v1\"]}},{\"value\":2}]");
+        DynamicContextualProperty<Integer> prop = new DynamicContextualProperty<Integer>("propWithCustomPredicate", 0, predicate);
+        assertEquals(5, prop.getValue().intValue());
+        context.set("v2");
+        assertEquals(2, prop.getValue().intValue());
+    }
+
+    @Test
+    public void testDimensionsFollowRuleChanges() {
+        ConfigurationManager.getConfigInstance().setProperty("d3", "x");
+        ConfigurationManager.getConfigInstance().setProperty("d4", "y");
+        ConfigurationManager.getConfigInstance().setProperty("propWithChangingRules",
+                "[{\"value\":5,\"if\":{\"d3\":[\"x\"]}},{\"value\":2}]");
+        DynamicContextualProperty<Integer> prop = new DynamicContextualProperty<Integer>("propWithChangingRules", 0);
+        assertEquals(5, prop.getValue().intValue());
+        ConfigurationManager.getConfigInstance().setProperty("propWithChangingRules",
+                "[{\"value\":7,\"if\":{\"d4\":[\"z\"]}},{\"value\":2}]");
+        assertEquals(2, prop.getValue().intValue());
+        // the old dimension no longer affects the value, the new one does
+        ConfigurationManager.getConfigInstance().setProperty("d3", "other");
+        assertEquals(2, prop.getValue().intValue());
+        ConfigurationManager.getConfigInstance().setProperty("d4", "z");
+        assertEquals(7, prop.getValue().intValue());
+        ConfigurationManager.getConfigInstance().clearProperty("d4");
+        assertEquals(2, prop.getValue().intValue());
+    }
+
+    @Test
+    public void testDimensionWithoutValuesMatchesNothing() {
+        ConfigurationManager.getConfigInstance().setProperty("d6", "v1");
+        ConfigurationManager.getConfigInstance().setProperty("propWithNullDimension",
+                "[{\"value\":5,\"if\":{\"d6\":null}},{\"value\":2}]");
+        DynamicContextualProperty<Integer> prop = new DynamicContextualProperty<Integer>("propWithNullDimension", 0);
+        assertEquals(2, prop.getValue().intValue());
+        ConfigurationManager.getConfigInstance().setProperty("propWithNullDimension",
+                "[{\"value\":7,\"if\":{\"d6\":[\"v1\"]}},{\"value\":5,\"if\":{\"d6\":null}}]");
+        assertEquals(7, prop.getValue().intValue());
+        ConfigurationManager.getConfigInstance().setProperty("d6", "v2");
+        assertEquals(0, prop.getValue().intValue());
+    }
+
+    @Test
+    public void testValuesAreOfPropertyType() {
+        ConfigurationManager.getConfigInstance().setProperty("d5", "v1");
+        ConfigurationManager.getConfigInstance().setProperty("longContextualProp",
+                "[{\"value\":5,\"if\":{\"d5\":[\"v1\"]}},{\"value\":2}]");
+        DynamicContextualProperty<Long> prop = new DynamicContextualProperty<Long>("longContextualProp", 0L);
+        Long value = prop.getValue();
+        assertEquals(5L, value.longValue());
+        ConfigurationManager.getConfigInstance().setProperty("d5", "v2");
+        value = prop.getValue();
+        assertEquals(2L, value.longValue());
+    }
 }
@@ -0,0 +1,66 @@
+/**
+ * Copyright 2014 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.config;
+
+import static org.junit.Assert.*;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class DynamicPropertyEagerParsingTest {
+
+    static volatile Thread loadingThread;
+
+    public static class LoadedClass {
+        static {
+            loadingThread = Thread.currentThread();
+        }
+    }
+
+    @BeforeClass
+    public static void init() {
+        System.setProperty(DynamicProperty.EAGER_PARSING_PROPERTY, "true");
+    }
+
+    @Test
+    public void testRequestedTypesAreParsedByUpdater() throws Exception {
+        final String name = "com.netflix.testing.eagerParsing";
+        ConfigurationManager.getConfigInstance().setProperty(name, "java.lang.String");
+        DynamicProperty prop = DynamicProperty.getInstance(name);
+        assertEquals(String.class, prop.getNamedClass());
+
+        Thread updater = new Thread() {
+            public void run() {
+                ConfigurationManager.getConfigInstance().setProperty(name, LoadedClass.class.getName());
+            }
+        };
+        updater.start();
+        updater.join();
+        assertSame(updater, loadingThread);
+        assertEquals(LoadedClass.class, prop.getNamedClass());
+    }
+
+    @Test
+    public void testValuesFollowChanges() throws Exception {
+        final String name = "com.netflix.testing.eagerParsing.notRequested";
+        ConfigurationManager.getConfigInstance().setProperty(name, "1");
+        DynamicProperty prop = DynamicProperty.getInstance(name);
+        assertEquals(1, prop.getInteger().intValue());
+        ConfigurationManager.getConfigInstance().setProperty(name, "2");
+        assertEquals(2, prop.getInteger().intValue());
+        assertEquals(Boolean.TRUE, prop.getBoolean(Boolean.TRUE));
+    }
+}
@@ -22,6 +22,14 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.OutputStreamWriter;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -315,5 +323,106 @@ public class DynamicPropertyTest {
         assertTrue(prop.prop.getCallbacks().contains(r));
     }
 
+    @Test
+    public void testConcurrentReadsDuringUpdates() throws Exception {
+        config.stopLoading();
+        final String name = "com.netflix.testing.concurrentReads";
+        final DynamicProperty fastProp = DynamicProperty.getInstance(name);
+        config.setProperty(name, "1");
+        final AtomicBoolean failed = new AtomicBoolean(false);
+        final AtomicBoolean done = new AtomicBoolean(false);
+        Thread[] readers = new Thread[4];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread() {
+                public void run() {
+                    while (!done.get()) {
+                        int value = fastProp.getInteger(Integer.valueOf(-1)).intValue();
+                        if (value != 1 && value != 2) {
+                            failed.set(true);
+                        }
+                    }
+                }
+            };
+            readers[i].start();
+        }
+        for (int i = 0; i < 1000; i++) {
+            config.setProperty(name, (i % 2 == 0) ? "2" : "1");
+        }
+        done.set(true);
+        for (Thread reader: readers) {
+            reader.join();
+        }
+        assertFalse("Reader saw a value that was never set", failed.get());
+        assertEquals(1, fastProp.getInteger().intValue());
+    }
+
+    @Test
+    public void testPrimitiveGetters() {
+        config.stopLoading();
+        String name = "com.netflix.testing.primitives";
+        DynamicProperty fastProp = DynamicProperty.getInstance(name);
+        assertEquals(7, fastProp.getIntValue(7));
+        assertTrue(fastProp.getBooleanValue(true));
+        config.setProperty(name, "1000");
+        assertEquals(1000, fastProp.getIntValue(7));
+        assertEquals(1000L, fastProp.getLongValue(7L));
+        assertEquals(1000f, fastProp.getFloatValue(7f), 0f);
+        assertEquals(1000d, fastProp.getDoubleValue(7d), 0d);
+        assertFalse(fastProp.getBooleanValue(false));
+        config.setProperty(name, "2.5");
+        assertEquals(7, fastProp.getIntValue(7));
+        assertEquals(2.5f, fastProp.getFloatValue(7f), 0f);
+        assertEquals(2.5d, fastProp.getDoubleValue(7d), 0d);
+        config.setProperty(name, "on");
+        assertTrue(fastProp.getBooleanValue(false));
+        config.setProperty(name, "off");
+        assertFalse(fastProp.getBooleanValue(true));
+        config.clearProperty(name);
+        assertEquals(7L, fastProp.getLongValue(7L));
+    }
 
+    @Test
+    public void testCallbackExecutor() throws Exception {
+        config.stopLoading();
+        final String name = "com.netflix.testing.callbackExecutor";
+        final DynamicIntProperty prop = new DynamicIntProperty(name, 0);
+        final Thread updater = Thread.currentThread();
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicBoolean failed = new AtomicBoolean(false);
+        final List<Integer> seen = new CopyOnWriteArrayList<Integer>();
+        prop.addCallback(new Runnable() {
+            public void run() {
+                if (running.incrementAndGet() > 1 || Thread.currentThread() == updater) {
+                    failed.set(true);
+                }
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    failed.set(true);
+                }
+                seen.add(prop.get());
+                running.decrementAndGet();
+            }
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        DynamicProperty.setCallbackExecutor(executor);
+        try {
+            // the first callback blocks, which must not block the updates
+            for (int i = 1; i <= 100; i++) {
+                config.setProperty(name, String.valueOf(i));
+            }
+            assertEquals(100, prop.get());
+            release.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        } finally {
+            DynamicProperty.setCallbackExecutor(null);
+            executor.shutdownNow();
+        }
+        assertFalse("Callbacks ran concurrently or on the updating thread", failed.get());
+        // the changes made while the first callback was blocked are coalesced into at most one more run
+        assertTrue(seen.size() <= 2);
+        assertEquals(Integer.valueOf(100), seen.get(seen.size() - 1));
+    }
 }
@@ -25,7 +25,7 @@ import com.netflix.config.WatchedUpdateResult;
 import com.netflix.config.AbstractDynamicPropertyListener.EventType;
 
 import java.util.Map;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.List;
 
 import org.apache.commons.configuration.AbstractConfiguration;
 import org.apache.commons.configuration.Configuration;
@@ -63,10 +63,11 @@ public class DynamicPropertyUpdaterTest {
         changed.put("test.host","");
         dynamicPropertyUpdater.updateProperties(WatchedUpdateResult.createIncremental(added, changed, null), config, false);
         assertEquals("",config.getProperty("test.host"));
-        assertEquals(2,((CopyOnWriteArrayList)(config.getProperty("test"))).size());
-        assertTrue(((CopyOnWriteArrayList)(config.getProperty("test"))).contains("host"));
-        assertTrue(((CopyOnWriteArrayList)(config.getProperty("test"))).contains("host1"));
-        assertEquals(5, MyListener.count);
+        assertEquals(2,((List<?>)(config.getProperty("test"))).size());
+        assertTrue(((List<?>)(config.getProperty("test"))).contains("host"));
+        assertTrue(((List<?>)(config.getProperty("test"))).contains("host1"));
+        // added and changed values of test.host are applied in the same batch
+        assertEquals(4, MyListener.count);
     }
 
   
@@ -79,27 +80,27 @@ public class DynamicPropertyUpdaterTest {
         config.setProperty("test.host", "test,test1,test2");
         assertEquals(1, MyListener.count);
         dynamicPropertyUpdater.addOrChangeProperty("test.host", "test,test1,test2", config);
-        assertEquals(3,((CopyOnWriteArrayList)(config.getProperty("test.host"))).size());
-        assertTrue(((CopyOnWriteArrayList)(config.getProperty("test.host"))).contains("test"));
-        assertTrue(((CopyOnWriteArrayList)(config.getProperty("test.host"))).contains("test1"));
-        assertTrue(((CopyOnWriteArrayList)(config.getProperty("test.host"))).contains("test2"));
+        assertEquals(3,((List<?>)(config.getProperty("test.host"))).size());
+        assertTrue(((List<?>)(config.getProperty("test.host"))).contains("test"));
+        assertTrue(((List<?>)(config.getProperty("test.host"))).contains("test1"));
+        assertTrue(((List<?>)(config.getProperty("test.host"))).contains("test2"));
         assertEquals(1, MyListener.count);
         dynamicPropertyUpdater.addOrChangeProperty("test.host", "test,test1,test2", config);
-        assertEquals(3,((CopyOnWriteArrayList)(config.getProperty("test.host"))).size());
-        assertTrue(((CopyOnWriteArrayList)(config.getProperty("test.host"))).contains("test"));
-        assertTrue(((CopyOnWriteArrayList)(config.getProperty("test.host"))).contains("test1"));
-        assertTrue(((CopyOnWriteArrayList)(config.getProperty("test.host"))).contains("test2"));
+        assertEquals(3,((List<?>)(config.getProperty("test.host"))).size());
+        assertTrue(((List<?>)(config.getProperty("test.host"))).contains("test"));
+        assertTrue(((List<?>)(config.getProperty("test.host"))).contains("test1"));
+        assertTrue(((List<?>)(config.getProperty("test.host"))).contains("test2"));
         assertEquals(1, MyListener.count);
         dynamicPropertyUpdater.addOrChangeProperty("test.host", "test,test1", config);
-        assertEquals(2,((CopyOnWriteArrayList)(config.getProperty("test.host"))).size());
-        assertTrue(((CopyOnWriteArrayList)(config.getProperty("test.host"))).contains("test"));
-        assertTrue(((CopyOnWriteArrayList)(config.getProperty("test.host"))).contains("test1"));
+        assertEquals(2,((List<?>)(config.getProperty("test.host"))).size());
+        assertTrue(((List<?>)(config.getProperty("test.host"))).contains("test"));
+        assertTrue(((List<?>)(config.getProperty("test.host"))).contains("test1"));
         assertEquals(2, MyListener.count);
         
         dynamicPropertyUpdater.addOrChangeProperty("test.host1", "test1,test12", config);
-        assertEquals(2,((CopyOnWriteArrayList)(config.getProperty("test.host1"))).size());
-        assertTrue(((CopyOnWriteArrayList)(config.getProperty("test.host1"))).contains("test1"));
-        assertTrue(((CopyOnWriteArrayList)(config.getProperty("test.host1"))).contains("test12"));
+        assertEquals(2,((List<?>)(config.getProperty("test.host1"))).size());
+        assertTrue(((List<?>)(config.getProperty("test.host1"))).contains("test1"));
+        assertTrue(((List<?>)(config.getProperty("test.host1"))).contains("test12"));
         assertEquals(3, MyListener.count);
         
         config.setProperty("test.host1", "test1.test12");
@@ -118,10 +119,10 @@ public class DynamicPropertyUpdaterTest {
         config.setProperty("test.host", "test:test1:test2");
         assertEquals(1, MyListener.count);
         dynamicPropertyUpdater.addOrChangeProperty("test.host", "test:test1:test2", config);
-        assertEquals(3,((CopyOnWriteArrayList)(config.getProperty("test.host"))).size());
-        assertTrue(((CopyOnWriteArrayList)(config.getProperty("test.host"))).contains("test"));
-        assertTrue(((CopyOnWriteArrayList)(config.getProperty("test.host"))).contains("test1"));
-        assertTrue(((CopyOnWriteArrayList)(config.getProperty("test.host"))).contains("test2"));
+        assertEquals(3,((List<?>)(config.getProperty("test.host"))).size());
+        assertTrue(((List<?>)(config.getProperty("test.host"))).contains("test"));
+        assertTrue(((List<?>)(config.getProperty("test.host"))).contains("test1"));
+        assertTrue(((List<?>)(config.getProperty("test.host"))).contains("test2"));
         assertEquals(1, MyListener.count); // the config is not set again. when the value is still not changed.
        config.setProperty("test.host1", "test1:test12");
         // changing the new object value , the config.setProperty should be called again.
@@ -0,0 +1,150 @@
+/**
+ * Copyright 2014 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.config;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+public class ParallelInitialLoaderTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(3);
+
+    private static class BlockingSource implements PolledConfigurationSource {
+        private final Map<String, Object> properties;
+        private final CyclicBarrier barrier;
+        private final CountDownLatch release;
+
+        BlockingSource(Map<String, Object> properties, CyclicBarrier barrier, CountDownLatch release) {
+            this.properties = properties;
+            this.barrier = barrier;
+            this.release = release;
+        }
+
+        @Override
+        public PollResult poll(boolean initial, Object checkPoint) throws Exception {
+            if (barrier != null) {
+                barrier.await(10, TimeUnit.SECONDS);
+            }
+            if (release != null) {
+                assertTrue(release.await(10, TimeUnit.SECONDS));
+            }
+            if (properties == null) {
+                throw new Exception("unavailable");
+            }
+            return PollResult.createFull(properties);
+        }
+    }
+
+    private static AbstractPollingScheduler newScheduler() {
+        return new FixedDelayPollingScheduler(600000, 600000, false);
+    }
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testSourcesArePolledConcurrently() throws Exception {
+        // every poll waits for the other ones, so the load only completes if they run at the same time
+        CyclicBarrier barrier = new CyclicBarrier(3);
+        ParallelInitialLoader loader = new ParallelInitialLoader(executor);
+        ConcurrentCompositeConfiguration config = new ConcurrentCompositeConfiguration();
+        config.addConfiguration(loader.addSource("high",
+                new BlockingSource(Collections.<String, Object>singletonMap("prop", "high"), barrier, null),
+                newScheduler()), "high");
+        config.addConfiguration(loader.addSource("middle",
+                new BlockingSource(Collections.<String, Object>singletonMap("prop2", "middle"), barrier, null),
+                newScheduler()), "middle");
+        config.addConfiguration(loader.addSource("low",
+                new BlockingSource(Collections.<String, Object>singletonMap("prop", "low"), barrier, null),
+                newScheduler()), "low");
+        Map<String, Long> timings = loader.start().get(10, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList("high", "middle", "low"), Arrays.asList(timings.keySet().toArray()));
+        assertEquals("high", config.getString("prop"));
+        assertEquals("middle", config.getString("prop2"));
+        assertSame(loader.start(), loader.start());
+        try {
+            loader.addSource("late", new BlockingSource(null, null, null), newScheduler());
+            fail("sources cannot be added after the load has started");
+        } catch (IllegalStateException e) {
+            assertNotNull(e.getMessage());
+        }
+    }
+
+    @Test
+    public void testResultsAreAppliedInPrecedenceOrder() throws Exception {
+        CountDownLatch releaseHigh = new CountDownLatch(1);
+        ParallelInitialLoader loader = new ParallelInitialLoader(executor);
+        DynamicConfiguration high = loader.addSource("high",
+                new BlockingSource(Collections.<String, Object>singletonMap("prop", "high"), null, releaseHigh),
+                newScheduler());
+        final CountDownLatch lowPolled = new CountDownLatch(1);
+        DynamicConfiguration low = loader.addSource("low",
+                new BlockingSource(Collections.<String, Object>singletonMap("prop", "low"), null, null) {
+                    @Override
+                    public PollResult poll(boolean initial, Object checkPoint) throws Exception {
+                        try {
+                            return super.poll(initial, checkPoint);
+                        } finally {
+                            lowPolled.countDown();
+                        }
+                    }
+                }, newScheduler());
+        // the configurations are initialized before their sources are polled
+        assertNotNull(high.getSource());
+        assertNotNull(low.getSource());
+        ListenableFuture<Map<String, Long>> ready = loader.start();
+        assertTrue(lowPolled.await(10, TimeUnit.SECONDS));
+        // the low source has been polled, but is not applied before the high one
+        assertFalse(ready.isDone());
+        assertTrue(low.isEmpty());
+        releaseHigh.countDown();
+        ready.get(10, TimeUnit.SECONDS);
+        assertEquals("high", high.getString("prop"));
+        assertEquals("low", low.getString("prop"));
+    }
+
+    @Test
+    public void testFailedSourceDoesNotStopOtherSources() throws Exception {
+        ParallelInitialLoader loader = new ParallelInitialLoader(executor);
+        DynamicConfiguration failing = loader.addSource("failing", new BlockingSource(null, null, null), newScheduler());
+        DynamicConfiguration working = loader.addSource("working",
+                new BlockingSource(Collections.<String, Object>singletonMap("prop", "value"), null, null), newScheduler());
+        try {
+            loader.start().get(10, TimeUnit.SECONDS);
+            fail("the load should fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause().getMessage().contains("failing"));
+        }
+        assertTrue(failing.isEmpty());
+        assertEquals("value", working.getString("prop"));
+    }
+}
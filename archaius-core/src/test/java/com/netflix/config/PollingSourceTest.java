@@ -18,12 +18,19 @@ package com.netflix.config;
 import static org.junit.Assert.*;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.event.ConfigurationEvent;
+import org.apache.commons.configuration.event.ConfigurationListener;
 import org.junit.Test;
 
+import com.netflix.config.validation.ValidationException;
+
 public class PollingSourceTest {
     
     static class DummyPollingSource implements PolledConfigurationSource {
@@ -159,5 +166,78 @@ public class PollingSourceTest {
         assertEquals("changed", prop2.get());
     }
 
-}
+    @Test
+    public void testUnchangedFullResultIsNotApplied() throws Exception {
+        ConcurrentMapConfiguration config = new ConcurrentMapConfiguration();
+        final List<ConfigurationEvent> events = new CopyOnWriteArrayList<ConfigurationEvent>();
+        config.addConfigurationListener(new BatchConfigurationListener() {
+            @Override
+            public void configurationChanged(ConfigurationEvent event) {
+                if (!event.isBeforeUpdate()) {
+                    events.add(event);
+                }
+            }
+        });
+        DummyPollingSource source = new DummyPollingSource(false);
+        source.setFull("prop1=value1,prop2=value2,prop3=value3");
+        FixedDelayPollingScheduler scheduler = new FixedDelayPollingScheduler(0, 10, false);
+        scheduler.startPolling(source, config);
+        try {
+            Thread.sleep(200);
+            assertEquals(1, events.size());
+            source.setFull("prop1=value1,prop2=changed,prop4=value4");
+            Thread.sleep(200);
+            assertEquals(2, events.size());
+            Map<?, ?> changes = (Map<?, ?>) events.get(1).getPropertyValue();
+            assertEquals(3, changes.size());
+            assertEquals("changed", changes.get("prop2"));
+            assertEquals("value4", changes.get("prop4"));
+            assertTrue(changes.containsKey("prop3"));
+            assertEquals("value1", config.getProperty("prop1"));
+            assertEquals("changed", config.getProperty("prop2"));
+            assertFalse(config.containsKey("prop3"));
+            assertEquals("value4", config.getProperty("prop4"));
+        } finally {
+            scheduler.stop();
+        }
+    }
 
+    @Test
+    public void testOutOfBandChangesAreReconciled() throws Exception {
+        ConcurrentMapConfiguration config = new ConcurrentMapConfiguration();
+        final AtomicBoolean rejectProp2 = new AtomicBoolean(true);
+        config.addConfigurationListener(new ConfigurationListener() {
+            @Override
+            public void configurationChanged(ConfigurationEvent event) {
+                if (event.isBeforeUpdate() && "prop2".equals(event.getPropertyName()) && rejectProp2.get()) {
+                    throw new ValidationException("rejected");
+                }
+            }
+        });
+        DummyPollingSource source = new DummyPollingSource(false);
+        source.setFull("prop1=value1,prop2=value2");
+        FixedDelayPollingScheduler scheduler = new FixedDelayPollingScheduler(0, 10, false);
+        scheduler.startPolling(source, config);
+        try {
+            Thread.sleep(200);
+            assertEquals("value1", config.getProperty("prop1"));
+            assertFalse(config.containsKey("prop2"));
+
+            // a rejected value is applied again once the validator accepts it
+            rejectProp2.set(false);
+            Thread.sleep(200);
+            assertEquals("value2", config.getProperty("prop2"));
+
+            // changes made outside the scheduler are undone by the next full result
+            config.setProperty("prop1", "local");
+            config.addProperty("prop3", "local");
+            config.clearProperty("prop2");
+            Thread.sleep(200);
+            assertEquals("value1", config.getProperty("prop1"));
+            assertEquals("value2", config.getProperty("prop2"));
+            assertFalse(config.containsKey("prop3"));
+        } finally {
+            scheduler.stop();
+        }
+    }
+}
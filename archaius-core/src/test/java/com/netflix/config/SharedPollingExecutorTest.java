@@ -0,0 +1,147 @@
+/**
+ * Copyright 2014 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.config;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class SharedPollingExecutorTest {
+
+    @Test
+    public void testSlowTaskDoesNotStarveOthers() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger slowRuns = new AtomicInteger();
+        SharedPollingExecutor.Handle slow = SharedPollingExecutor.scheduleWithFixedDelay("slow", new Runnable() {
+            @Override
+            public void run() {
+                slowRuns.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, 0, 1);
+        final CountDownLatch fastRuns = new CountDownLatch(5);
+        SharedPollingExecutor.Handle fast = SharedPollingExecutor.scheduleWithFixedDelay("fast", new Runnable() {
+            @Override
+            public void run() {
+                fastRuns.countDown();
+                throw new RuntimeException("runs again anyway");
+            }
+        }, 0, 1);
+        try {
+            assertTrue(fastRuns.await(5, TimeUnit.SECONDS));
+            // a task never runs concurrently with itself
+            assertEquals(1, slowRuns.get());
+            assertEquals(1, slow.getRunCount());
+            assertTrue(fast.getRunCount() >= 5);
+            assertTrue(fast.getMaxQueueDelayMillis() >= fast.getLastQueueDelayMillis());
+            assertEquals("fast", fast.getName());
+        } finally {
+            release.countDown();
+            slow.cancel();
+            fast.cancel();
+            fast.cancel();
+        }
+        assertTrue(slow.isCancelled());
+        long runs = fast.getRunCount();
+        Thread.sleep(100);
+        assertEquals(runs, fast.getRunCount());
+    }
+
+    @Test
+    public void testSchedulerCanBeRescheduledAndStopped() throws Exception {
+        final AtomicInteger polls = new AtomicInteger();
+        PolledConfigurationSource source = new PolledConfigurationSource() {
+            @Override
+            public PollResult poll(boolean initial, Object checkPoint) throws Exception {
+                polls.incrementAndGet();
+                return PollResult.createIncremental(null, null, null, null);
+            }
+
+            @Override
+            public String toString() {
+                return "testSource";
+            }
+        };
+        ConcurrentMapConfiguration config = new ConcurrentMapConfiguration();
+        FixedDelayPollingScheduler scheduler = new FixedDelayPollingScheduler(0, 10, false);
+        scheduler.startPolling(source, config);
+        // scheduling again replaces the previous schedule instead of adding one
+        scheduler.startPolling(source, config);
+        Thread.sleep(200);
+        SharedPollingExecutor.Handle handle = scheduler.getHandle();
+        assertEquals("pollingConfigurationSource[testSource]", handle.getName());
+        assertTrue(handle.getRunCount() > 2);
+        scheduler.stop();
+        assertNull(scheduler.getHandle());
+        assertTrue(handle.isCancelled());
+        scheduler.stop();
+        Thread.sleep(50);
+        int stoppedAt = polls.get();
+        assertTrue(stoppedAt > 2);
+        Thread.sleep(100);
+        assertEquals(stoppedAt, polls.get());
+    }
+
+    @Test
+    public void testTaskCanBeRescheduled() throws Exception {
+        final AtomicInteger runs = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(3);
+        final SharedPollingExecutor.Handle[] handle = new SharedPollingExecutor.Handle[1];
+        synchronized (handle) {
+            handle[0] = SharedPollingExecutor.schedule("rescheduled", new Runnable() {
+                @Override
+                public void run() {
+                    runs.incrementAndGet();
+                    done.countDown();
+                    synchronized (handle) {
+                        handle[0].reschedule(1);
+                    }
+                }
+            }, 0);
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        handle[0].cancel();
+        assertTrue(handle[0].isCancelled());
+        Thread.sleep(50);
+        long count = handle[0].getRunCount();
+        assertTrue(count >= 3);
+        assertEquals(count, runs.get());
+        // the run in progress when the task was cancelled does not schedule another one
+        Thread.sleep(50);
+        assertEquals(count, handle[0].getRunCount());
+
+        SharedPollingExecutor.Handle fixed = SharedPollingExecutor.scheduleWithFixedDelay("fixed", new Runnable() {
+            @Override
+            public void run() {
+            }
+        }, 1000, 1000);
+        try {
+            fixed.reschedule(0);
+            fail("a task scheduled with a fixed delay cannot be rescheduled");
+        } catch (IllegalStateException e) {
+        } finally {
+            fixed.cancel();
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/**
+ * Copyright 2014 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.config.sources;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.netflix.config.PollResult;
+import com.netflix.config.PolledConfigurationSource;
+
+public class SnapshotPolledConfigurationSourceTest {
+
+    private static class StubSource implements PolledConfigurationSource {
+        volatile PollResult result;
+        volatile boolean failing;
+        final List<Boolean> polls = new ArrayList<Boolean>();
+
+        @Override
+        public synchronized PollResult poll(boolean initial, Object checkPoint) throws Exception {
+            polls.add(initial);
+            if (failing) {
+                throw new IOException("unavailable");
+            }
+            return result;
+        }
+    }
+
+    private static Map<String, Object> properties(String... keysAndValues) {
+        Map<String, Object> map = new HashMap<String, Object>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            map.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return map;
+    }
+
+    private static File newSnapshotFile() throws IOException {
+        File file = File.createTempFile("SnapshotPolledConfigurationSourceTest", ".snapshot");
+        file.delete();
+        file.deleteOnExit();
+        return file;
+    }
+
+    @Test
+    public void testSnapshotIsUsedWhenInitialPollFails() throws Exception {
+        File file = newSnapshotFile();
+        StubSource stub = new StubSource();
+        stub.result = PollResult.createFull(properties("prop1", "value1", "prop2", "valueé"));
+        new SnapshotPolledConfigurationSource(stub, file).poll(true, null);
+        stub.result = PollResult.createIncremental(properties("prop3", "value3"), null, properties("prop1", ""), null);
+        new SnapshotPolledConfigurationSource(stub, file).poll(false, null);
+        assertEquals(properties("prop1", "value1", "prop2", "valueé"), SnapshotPolledConfigurationSource.readSnapshot(file));
+
+        SnapshotPolledConfigurationSource source = new SnapshotPolledConfigurationSource(stub, file);
+        stub.result = PollResult.createFull(properties("prop1", "value1"));
+        source.poll(true, null);
+        stub.result = PollResult.createIncremental(properties("prop3", "value3"), null, properties("prop1", ""), null);
+        source.poll(false, null);
+        assertEquals(properties("prop3", "value3"), SnapshotPolledConfigurationSource.readSnapshot(file));
+
+        stub.failing = true;
+        source = new SnapshotPolledConfigurationSource(stub, file);
+        PollResult result = source.poll(true, null);
+        assertFalse(result.isIncremental());
+        assertEquals(properties("prop3", "value3"), result.getComplete());
+        // the source is polled from scratch once it is back
+        stub.failing = false;
+        stub.polls.clear();
+        stub.result = PollResult.createFull(properties("prop4", "value4"));
+        source.poll(false, null);
+        assertEquals(Boolean.TRUE, stub.polls.get(0));
+        assertEquals(properties("prop4", "value4"), SnapshotPolledConfigurationSource.readSnapshot(file));
+
+        // polls after the initial one fail as usual
+        stub.failing = true;
+        try {
+            source.poll(false, null);
+            fail("the failure of the source should be thrown");
+        } catch (IOException e) {
+            assertEquals("unavailable", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSnapshotFirst() throws Exception {
+        File file = newSnapshotFile();
+        StubSource stub = new StubSource();
+        stub.result = PollResult.createFull(properties("prop1", "value1"));
+        SnapshotPolledConfigurationSource source = new SnapshotPolledConfigurationSource(stub, file, true);
+        // without a snapshot the source is polled
+        assertEquals(properties("prop1", "value1"), source.poll(true, null).getComplete());
+        assertEquals(1, stub.polls.size());
+
+        source = new SnapshotPolledConfigurationSource(stub, file, true);
+        stub.result = PollResult.createFull(properties("prop1", "value2"));
+        assertEquals(properties("prop1", "value1"), source.poll(true, null).getComplete());
+        assertEquals(1, stub.polls.size());
+        assertEquals(properties("prop1", "value2"), source.poll(false, null).getComplete());
+        assertEquals(Boolean.TRUE, stub.polls.get(1));
+    }
+
+    @Test
+    public void testUnchangedSnapshotIsNotWritten() throws Exception {
+        File file = newSnapshotFile();
+        StubSource stub = new StubSource();
+        stub.result = PollResult.createFull(properties("prop1", "value1"));
+        SnapshotPolledConfigurationSource source = new SnapshotPolledConfigurationSource(stub, file);
+        source.poll(true, null);
+        assertTrue(file.delete());
+        source.poll(false, null);
+        assertFalse(file.exists());
+        stub.result = PollResult.createIncremental(null, properties("prop1", "value1"), null, null);
+        source.poll(false, null);
+        assertFalse(file.exists());
+
+        stub.result = PollResult.createFull(properties("prop1", "value2"));
+        source.poll(false, null);
+        assertEquals(properties("prop1", "value2"), SnapshotPolledConfigurationSource.readSnapshot(file));
+
+        // the content read from the snapshot is not written back either
+        stub.failing = true;
+        source = new SnapshotPolledConfigurationSource(stub, file);
+        source.poll(true, null);
+        assertTrue(file.delete());
+        stub.failing = false;
+        source.poll(false, null);
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testMultiValuedProperties() throws Exception {
+        File file = newSnapshotFile();
+        StubSource stub = new StubSource();
+        Map<String, Object> properties = properties("prop1", "value1");
+        properties.put("list", Arrays.asList("a", "b,c"));
+        properties.put("single", Arrays.asList("d"));
+        properties.put("empty", new ArrayList<String>());
+        properties.put("number", 1);
+        stub.result = PollResult.createFull(properties);
+        new SnapshotPolledConfigurationSource(stub, file).poll(true, null);
+
+        Map<String, Object> expected = properties("prop1", "value1", "single", "d", "number", "1");
+        expected.put("list", Arrays.asList("a", "b,c"));
+        expected.put("empty", new ArrayList<String>());
+        assertEquals(expected, SnapshotPolledConfigurationSource.readSnapshot(file));
+        stub.failing = true;
+        assertEquals(expected, new SnapshotPolledConfigurationSource(stub, file).poll(true, null).getComplete());
+    }
+
+    @Test
+    public void testInvalidSnapshotIsIgnored() throws Exception {
+        File file = newSnapshotFile();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(new byte[] {1, 2, 3});
+        } finally {
+            out.close();
+        }
+        StubSource stub = new StubSource();
+        stub.failing = true;
+        try {
+            new SnapshotPolledConfigurationSource(stub, file).poll(true, null);
+            fail("the failure of the source should be thrown");
+        } catch (IOException e) {
+            assertEquals("unavailable", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright 2014 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.config.sources;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.netflix.config.PollResult;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class URLConfigurationSourceTest {
+
+    @Test
+    public void testUnchangedFileIsNotRead() throws Exception {
+        File file = File.createTempFile("URLConfigurationSourceTest", ".properties");
+        file.deleteOnExit();
+        writeFile(file, "prop1=value1\n");
+        URLConfigurationSource source = new URLConfigurationSource(file.toURI().toURL());
+        PollResult result = source.poll(true, null);
+        assertFalse(result.isIncremental());
+        assertEquals("value1", result.getComplete().get("prop1"));
+        assertNotNull(result.getCheckPoint());
+
+        PollResult unchanged = source.poll(false, result.getCheckPoint());
+        assertTrue(unchanged.isIncremental());
+        assertFalse(unchanged.hasChanges());
+        assertSame(result.getCheckPoint(), unchanged.getCheckPoint());
+
+        writeFile(file, "prop1=value1\nprop2=value2\n");
+        PollResult changed = source.poll(false, unchanged.getCheckPoint());
+        assertFalse(changed.isIncremental());
+        assertEquals("value2", changed.getComplete().get("prop2"));
+
+        // the initial poll and polls without a check point always read the content
+        assertFalse(source.poll(true, changed.getCheckPoint()).isIncremental());
+        assertFalse(source.poll(false, null).isIncremental());
+    }
+
+    @Test
+    public void testConditionalGet() throws Exception {
+        final AtomicInteger fullResponses = new AtomicInteger();
+        final AtomicInteger version = new AtomicInteger(1);
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/config.properties", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String etag = "\"v" + version.get() + "\"";
+                if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    exchange.sendResponseHeaders(304, -1);
+                } else {
+                    fullResponses.incrementAndGet();
+                    byte[] content = ("prop1=value" + version.get() + "\n").getBytes("UTF-8");
+                    exchange.getResponseHeaders().set("ETag", etag);
+                    exchange.sendResponseHeaders(200, content.length);
+                    exchange.getResponseBody().write(content);
+                }
+                exchange.close();
+            }
+        });
+        server.start();
+        try {
+            URLConfigurationSource source = new URLConfigurationSource(
+                    "http://localhost:" + server.getAddress().getPort() + "/config.properties");
+            PollResult result = source.poll(true, null);
+            assertEquals("value1", result.getComplete().get("prop1"));
+            assertEquals(1, fullResponses.get());
+            for (int i = 0; i < 3; i++) {
+                result = source.poll(false, result.getCheckPoint());
+                assertTrue(result.isIncremental());
+                assertFalse(result.hasChanges());
+            }
+            assertEquals(1, fullResponses.get());
+
+            // the changed content is read from the response to the conditional request
+            version.set(2);
+            result = source.poll(false, result.getCheckPoint());
+            assertFalse(result.isIncremental());
+            assertEquals("value2", result.getComplete().get("prop1"));
+            assertEquals(2, fullResponses.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static void writeFile(File file, String content) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,370 @@
+/**
+ * Copyright 2014 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.config.source;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.netflix.config.WatchedConfigurationSource;
+import com.netflix.config.WatchedUpdateListener;
+import com.netflix.config.WatchedUpdateResult;
+import com.netflix.config.util.ConfigurationUtils;
+
+/**
+ * Implementation of the dynamic {@link WatchedConfigurationSource} for local properties files, using the
+ * {@link WatchService} of the file system instead of polling.
+ * 
+ * Each path given to the source is either a properties file or a directory, in which case every file with the
+ * <code>.properties</code> extension directly in the directory is used. If a property is defined in more than
+ * one file, the value in the file of a later path overrides the value in the earlier one, and files in the same
+ * directory override each other in the order of their names.
+ * 
+ * Once {@link #start()} is called, changes to the files are sent to the listeners as incremental results. A burst
+ * of writes is collected until no further change is seen for the debounce delay, and then only the files that
+ * changed are read again. On platforms without native file change notification the JDK falls back to polling
+ * the watched directories.
+ */
+public class FileWatchConfigurationSource implements WatchedConfigurationSource, Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(FileWatchConfigurationSource.class);
+
+    /**
+     * Default time in milliseconds to wait for further changes before reading changed files.
+     */
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 100;
+
+    private static final String PROPERTIES_FILE_EXTENSION = ".properties";
+
+    private final Path[] paths;
+    // whether each path is a directory, determined when the source is started
+    private final boolean[] directories;
+    private final long debounceMillis;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<WatchKey, Path>();
+
+    // content of each file ordered by precedence, only accessed by start() and then the watcher thread
+    private final NavigableMap<Path, Map<String, Object>> fileProperties;
+    private final Map<String, Object> currentData = new ConcurrentHashMap<String, Object>();
+
+    private final List<WatchedUpdateListener> listeners = new CopyOnWriteArrayList<WatchedUpdateListener>();
+    private Thread watcher;
+
+    /**
+     * Create an instance for the files and directories with the default debounce delay.
+     * 
+     * @param paths properties files or directories of properties files, in increasing order of precedence
+     * @throws IOException if the file system does not support watching for changes
+     */
+    public FileWatchConfigurationSource(Path... paths) throws IOException {
+        this(DEFAULT_DEBOUNCE_MILLIS, paths);
+    }
+
+    /**
+     * Create an instance for the files and directories.
+     * 
+     * @param debounceMillis time in milliseconds to wait for further changes before reading changed files
+     * @param paths properties files or directories of properties files, in increasing order of precedence
+     * @throws IOException if the file system does not support watching for changes
+     */
+    public FileWatchConfigurationSource(long debounceMillis, Path... paths) throws IOException {
+        if (paths == null || paths.length == 0) {
+            throw new IllegalArgumentException("paths is null or empty");
+        }
+        this.paths = new Path[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            this.paths[i] = paths[i].toAbsolutePath().normalize();
+        }
+        this.directories = new boolean[paths.length];
+        this.debounceMillis = debounceMillis;
+        this.watchService = this.paths[0].getFileSystem().newWatchService();
+        this.fileProperties = new TreeMap<Path, Map<String, Object>>(new Comparator<Path>() {
+            @Override
+            public int compare(Path p1, Path p2) {
+                int result = Integer.compare(getPrecedence(p1), getPrecedence(p2));
+                return result != 0 ? result : p1.compareTo(p2);
+            }
+        });
+    }
+
+    /**
+     * Reads the files, registers the directories with the watch service and starts the thread
+     * that applies the changes.
+     * 
+     * @throws IOException if any file cannot be read or any directory cannot be watched
+     */
+    public synchronized void start() throws IOException {
+        if (watcher != null) {
+            throw new IllegalStateException("Source is already started");
+        }
+        Set<Path> files = new HashSet<Path>();
+        for (int i = 0; i < paths.length; i++) {
+            directories[i] = Files.isDirectory(paths[i]);
+            Path directory = directories[i] ? paths[i] : paths[i].getParent();
+            WatchKey key = directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+            watchedDirectories.put(key, directory);
+        }
+        addFiles(files);
+        for (Path file : files) {
+            Map<String, Object> properties = load(file);
+            if (properties != null) {
+                fileProperties.put(file, properties);
+            }
+        }
+        for (Map<String, Object> properties : fileProperties.values()) {
+            currentData.putAll(properties);
+        }
+        logger.debug("Loaded [{}] properties from [{}] files", currentData.size(), fileProperties.size());
+        watcher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watch();
+            }
+        }, "FileWatchConfigurationSource");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    @Override
+    public Map<String, Object> getCurrentData() throws Exception {
+        return new HashMap<String, Object>(currentData);
+    }
+
+    @Override
+    public void addUpdateListener(WatchedUpdateListener l) {
+        if (l != null) {
+            listeners.add(l);
+        }
+    }
+
+    @Override
+    public void removeUpdateListener(WatchedUpdateListener l) {
+        if (l != null) {
+            listeners.remove(l);
+        }
+    }
+
+    protected void fireEvent(WatchedUpdateResult result) {
+        for (WatchedUpdateListener l : listeners) {
+            try {
+                l.updateConfiguration(result);
+            } catch (Throwable ex) {
+                logger.error("Error in invoking WatchedUpdateListener", ex);
+            }
+        }
+    }
+
+    /**
+     * Stops watching the files.
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            watchService.close();
+        } catch (IOException exc) {
+            logger.error("Unable to close the watch service", exc);
+        }
+        if (watcher != null) {
+            watcher.interrupt();
+        }
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                Set<Path> changedFiles = new HashSet<Path>();
+                boolean overflow = collectChanges(watchService.take(), changedFiles);
+                // keep collecting until the files are quiet for the debounce delay
+                WatchKey key;
+                while ((key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                    overflow |= collectChanges(key, changedFiles);
+                }
+                try {
+                    if (overflow) {
+                        logger.debug("Events were lost, reading all files");
+                        addFiles(changedFiles);
+                        changedFiles.addAll(fileProperties.keySet());
+                    }
+                    reload(changedFiles);
+                } catch (Throwable e) {
+                    logger.error("Error applying changes of files " + changedFiles, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            logger.debug("Watcher interrupted");
+        } catch (ClosedWatchServiceException e) {
+            logger.debug("Watch service closed");
+        }
+    }
+
+    /**
+     * @return true if events of the key were lost
+     */
+    private boolean collectChanges(WatchKey key, Set<Path> changedFiles) {
+        Path directory = watchedDirectories.get(key);
+        boolean overflow = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                overflow = true;
+            } else if (directory != null) {
+                Path file = directory.resolve((Path) event.context());
+                if (getPrecedence(file) >= 0) {
+                    changedFiles.add(file);
+                }
+            }
+        }
+        if (!key.reset()) {
+            logger.warn("Directory [{}] can no longer be watched", directory);
+        }
+        return overflow;
+    }
+
+    private void reload(Set<Path> changedFiles) {
+        Set<String> changedKeys = new HashSet<String>();
+        for (Path file : changedFiles) {
+            Map<String, Object> properties;
+            try {
+                properties = load(file);
+            } catch (IOException e) {
+                logger.error("Unable to read file [" + file + "], its properties are left unchanged", e);
+                continue;
+            }
+            Map<String, Object> previous = properties == null ? fileProperties.remove(file)
+                    : fileProperties.put(file, properties);
+            if (previous != null) {
+                changedKeys.addAll(previous.keySet());
+            }
+            if (properties != null) {
+                changedKeys.addAll(properties.keySet());
+            }
+        }
+        Map<String, Object> added = new HashMap<String, Object>();
+        Map<String, Object> changed = new HashMap<String, Object>();
+        Map<String, Object> deleted = new HashMap<String, Object>();
+        for (String key : changedKeys) {
+            Object value = resolve(key);
+            Object previous = value == null ? currentData.remove(key) : currentData.put(key, value);
+            if (previous == null) {
+                if (value != null) {
+                    added.put(key, value);
+                }
+            } else if (value == null) {
+                deleted.put(key, previous);
+            } else if (!value.equals(previous)) {
+                changed.put(key, value);
+            }
+        }
+        if (!added.isEmpty() || !changed.isEmpty() || !deleted.isEmpty()) {
+            logger.debug("Files {} added [{}], changed [{}] and deleted [{}] properties",
+                    new Object[] {changedFiles, added.size(), changed.size(), deleted.size()});
+            fireEvent(WatchedUpdateResult.createIncremental(added, changed, deleted));
+        }
+    }
+
+    private Object resolve(String key) {
+        for (Map<String, Object> properties : fileProperties.descendingMap().values()) {
+            Object value = properties.get(key);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Add the properties files that currently exist for the paths of the source.
+     */
+    private void addFiles(Set<Path> files) throws IOException {
+        for (int i = 0; i < paths.length; i++) {
+            Path path = paths[i];
+            if (directories[i]) {
+                DirectoryStream<Path> stream = Files.newDirectoryStream(path, "*" + PROPERTIES_FILE_EXTENSION);
+                try {
+                    for (Path file : stream) {
+                        files.add(file);
+                    }
+                } finally {
+                    stream.close();
+                }
+            } else if (Files.exists(path)) {
+                files.add(path);
+            }
+        }
+    }
+
+    /**
+     * @return the properties of the file, or null if the file does not exist
+     */
+    private static Map<String, Object> load(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        Properties props;
+        try {
+            InputStream in = Files.newInputStream(file);
+            props = ConfigurationUtils.loadPropertiesFromInputStream(in);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        Map<String, Object> properties = new HashMap<String, Object>(props.size());
+        for (Entry<Object, Object> entry : props.entrySet()) {
+            properties.put((String) entry.getKey(), entry.getValue());
+        }
+        return properties;
+    }
+
+    /**
+     * @return the index of the last path the file belongs to, or -1 if the file is not one of the source
+     */
+    private int getPrecedence(Path file) {
+        for (int i = paths.length - 1; i >= 0; i--) {
+            Path path = paths[i];
+            if (directories[i] ? path.equals(file.getParent())
+                    && file.getFileName().toString().endsWith(PROPERTIES_FILE_EXTENSION) : path.equals(file)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright 2014 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.config.source;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.netflix.config.DynamicWatchedConfiguration;
+import com.netflix.config.WatchedUpdateListener;
+import com.netflix.config.WatchedUpdateResult;
+
+/**
+ * Tests the implementation of {@link FileWatchConfigurationSource}.
+ */
+public class FileWatchConfigurationSourceTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private Path directory;
+    private FileWatchConfigurationSource source;
+    private final BlockingQueue<WatchedUpdateResult> results = new LinkedBlockingQueue<WatchedUpdateResult>();
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("FileWatchConfigurationSourceTest");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (source != null) {
+            source.close();
+        }
+        for (Path file : Files.newDirectoryStream(directory)) {
+            Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testChangesInDirectory() throws Exception {
+        write("a.properties", "x=1\ny=1\n");
+        write("b.properties", "y=2\n");
+        write("ignored.txt", "z=0\n");
+        source = startSource(directory);
+        assertEquals("1", source.getCurrentData().get("x"));
+        assertEquals("2", source.getCurrentData().get("y"));
+        assertFalse(source.getCurrentData().containsKey("z"));
+
+        // y is overridden by b.properties, so only the change of x is seen
+        write("a.properties", "x=10\ny=5\n");
+        WatchedUpdateResult result = nextResult();
+        assertEquals(Collections.singletonMap("x", "10"), result.getChanged());
+        assertTrue(result.getAdded().isEmpty());
+        assertTrue(result.getDeleted().isEmpty());
+
+        Files.delete(directory.resolve("b.properties"));
+        result = nextResult();
+        assertEquals(Collections.singletonMap("y", "5"), result.getChanged());
+
+        write("c.properties", "z=3\n");
+        result = nextResult();
+        assertEquals(Collections.singletonMap("z", "3"), result.getAdded());
+
+        Files.delete(directory.resolve("c.properties"));
+        result = nextResult();
+        assertEquals(Collections.singleton("z"), result.getDeleted().keySet());
+        assertEquals("10", source.getCurrentData().get("x"));
+        assertEquals("5", source.getCurrentData().get("y"));
+        assertFalse(source.getCurrentData().containsKey("z"));
+    }
+
+    @Test
+    public void testLaterPathTakesPrecedence() throws Exception {
+        Path first = write("first.properties", "x=first\n");
+        Path second = write("second.properties", "x=second\n");
+        source = startSource(second, first);
+        assertEquals("first", source.getCurrentData().get("x"));
+        write("second.properties", "x=changed\n");
+        write("first.properties", "x=first\ny=first\n");
+        WatchedUpdateResult result = nextResult();
+        assertEquals(Collections.singletonMap("y", "first"), result.getAdded());
+        assertTrue(result.getChanged().isEmpty());
+    }
+
+    @Test
+    public void testDynamicWatchedConfiguration() throws Exception {
+        Path file = write("config.properties", "prop=original\n");
+        source = new FileWatchConfigurationSource(file);
+        source.start();
+        DynamicWatchedConfiguration config = new DynamicWatchedConfiguration(source);
+        assertEquals("original", config.getString("prop"));
+        write("config.properties", "prop=changed\n");
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!"changed".equals(config.getString("prop")) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals("changed", config.getString("prop"));
+    }
+
+    private FileWatchConfigurationSource startSource(Path... paths) throws IOException {
+        FileWatchConfigurationSource source = new FileWatchConfigurationSource(200, paths);
+        source.addUpdateListener(new WatchedUpdateListener() {
+            @Override
+            public void updateConfiguration(WatchedUpdateResult result) {
+                results.add(result);
+            }
+        });
+        source.start();
+        return source;
+    }
+
+    private WatchedUpdateResult nextResult() throws InterruptedException {
+        WatchedUpdateResult result = results.poll(10, TimeUnit.SECONDS);
+        assertNotNull("No change received", result);
+        return result;
+    }
+
+    private Path write(String fileName, String content) throws IOException {
+        return Files.write(directory.resolve(fileName), content.getBytes(UTF_8));
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright 2014 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.config.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.netflix.config.ConcurrentCompositeConfiguration;
+import com.netflix.config.ConcurrentMapConfiguration;
+
+/**
+ * Property resolution in a {@link ConcurrentCompositeConfiguration} with a varying number of layers and keys.
+ * Layers of {@link ConcurrentMapConfiguration} are resolved through the index of winning values, while layers of
+ * {@link BaseConfiguration} are searched one by one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompositeConfigurationBenchmark {
+
+    @Param({"1", "4", "16"})
+    private int layers;
+
+    @Param({"10", "1000"})
+    private int keysPerLayer;
+
+    @Param({"concurrent", "base"})
+    private String layerType;
+
+    private ConcurrentCompositeConfiguration config;
+    private String[] sharedKeys;
+    private String[] bottomLayerKeys;
+    private String[] missingKeys;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        config = new ConcurrentCompositeConfiguration();
+        for (int i = 0; i < layers; i++) {
+            AbstractConfiguration layer = "base".equals(layerType)
+                    ? new BaseConfiguration() : new ConcurrentMapConfiguration();
+            for (int j = 0; j < keysPerLayer; j++) {
+                layer.setProperty("shared.key" + j, "layer" + i);
+                layer.setProperty("layer" + i + ".key" + j, "value" + j);
+            }
+            config.addConfiguration(layer, "layer" + i);
+        }
+        sharedKeys = new String[keysPerLayer];
+        bottomLayerKeys = new String[keysPerLayer];
+        missingKeys = new String[keysPerLayer];
+        for (int j = 0; j < keysPerLayer; j++) {
+            sharedKeys[j] = "shared.key" + j;
+            bottomLayerKeys[j] = "layer" + (layers - 1) + ".key" + j;
+            missingKeys[j] = "missing.key" + j;
+        }
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = index + 1 == keysPerLayer ? 0 : index + 1;
+        return index;
+    }
+
+    @Benchmark
+    public Object getPropertyFromTopLayer() {
+        return config.getProperty(sharedKeys[nextIndex()]);
+    }
+
+    @Benchmark
+    public Object getPropertyFromBottomLayer() {
+        return config.getProperty(bottomLayerKeys[nextIndex()]);
+    }
+
+    @Benchmark
+    public Object getMissingProperty() {
+        return config.getProperty(missingKeys[nextIndex()]);
+    }
+
+    @Benchmark
+    public boolean containsKey() {
+        return config.containsKey(bottomLayerKeys[nextIndex()]);
+    }
+}
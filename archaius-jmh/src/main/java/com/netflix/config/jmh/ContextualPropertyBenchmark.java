@@ -0,0 +1,97 @@
+/**
+ * Copyright 2014 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.config.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.config.DynamicContextualProperty;
+
+/**
+ * Evaluation of {@link DynamicContextualProperty} rules, matching the first rule, the last conditional rule
+ * and the default rule.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContextualPropertyBenchmark {
+
+    private DynamicContextualProperty<Integer> firstRuleProperty;
+    private DynamicContextualProperty<Integer> lastRuleProperty;
+    private DynamicContextualProperty<Integer> defaultRuleProperty;
+
+    /**
+     * Rules over the dimensions <code>@&lt;prefix&gt;Environment</code>, <code>@&lt;prefix&gt;Region</code> and
+     * <code>@&lt;prefix&gt;Zone</code>, so that each property can be given its own context.
+     */
+    private static String rules(String prefix) {
+        return "["
+                + "{\"if\": {\"@" + prefix + "Environment\": [\"prod\"], \"@" + prefix + "Region\": [\"us-east-1\"]},"
+                + " \"value\": 1},"
+                + "{\"if\": {\"@" + prefix + "Environment\": [\"test\", \"dev\"], \"@" + prefix + "Region\": [\"us-west-2\"]},"
+                + " \"value\": 2},"
+                + "{\"if\": {\"@" + prefix + "Environment\": [\"test\"], \"@" + prefix + "Zone\": [\"a\", \"b\", \"c\"]},"
+                + " \"value\": 3},"
+                + "{\"value\": 4}"
+                + "]";
+    }
+
+    @Setup
+    public void setUp() {
+        AbstractConfiguration config = ConfigurationManager.getConfigInstance();
+        config.setProperty("@firstEnvironment", "prod");
+        config.setProperty("@firstRegion", "us-east-1");
+        config.setProperty("@lastEnvironment", "test");
+        config.setProperty("@lastZone", "c");
+        config.setProperty("@defaultEnvironment", "staging");
+        config.setProperty("benchmark.contextual.first", rules("first"));
+        config.setProperty("benchmark.contextual.last", rules("last"));
+        config.setProperty("benchmark.contextual.default", rules("default"));
+        firstRuleProperty = new DynamicContextualProperty<Integer>("benchmark.contextual.first", 0);
+        lastRuleProperty = new DynamicContextualProperty<Integer>("benchmark.contextual.last", 0);
+        defaultRuleProperty = new DynamicContextualProperty<Integer>("benchmark.contextual.default", 0);
+    }
+
+    @Benchmark
+    public Integer firstRuleMatches() {
+        return firstRuleProperty.getValue();
+    }
+
+    @Benchmark
+    public Integer lastRuleMatches() {
+        return lastRuleProperty.getValue();
+    }
+
+    @Benchmark
+    public Integer defaultRuleMatches() {
+        return defaultRuleProperty.getValue();
+    }
+}
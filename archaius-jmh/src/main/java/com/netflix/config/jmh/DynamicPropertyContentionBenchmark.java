@@ -0,0 +1,93 @@
+/**
+ * Copyright 2014 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.config.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.config.DynamicIntProperty;
+import com.netflix.config.DynamicStringProperty;
+
+/**
+ * Reads of the same properties from several threads, with and without a concurrent writer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DynamicPropertyContentionBenchmark {
+
+    private AbstractConfiguration config;
+    private DynamicIntProperty intProperty;
+    private DynamicStringProperty stringProperty;
+
+    @State(Scope.Thread)
+    public static class Writer {
+        int nextValue;
+    }
+
+    @Setup
+    public void setUp() {
+        config = ConfigurationManager.getConfigInstance();
+        config.setProperty("benchmark.contended.int", "0");
+        config.setProperty("benchmark.contended.string", "0");
+        intProperty = new DynamicIntProperty("benchmark.contended.int", -1);
+        stringProperty = new DynamicStringProperty("benchmark.contended.string", null);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int readInt() {
+        return intProperty.get();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String readString() {
+        return stringProperty.get();
+    }
+
+    @Benchmark
+    @Group("readIntDuringUpdates")
+    @GroupThreads(3)
+    public int readIntDuringUpdates() {
+        return intProperty.get();
+    }
+
+    @Benchmark
+    @Group("readIntDuringUpdates")
+    @GroupThreads(1)
+    public void updateInt(Writer writer) {
+        config.setProperty("benchmark.contended.int", String.valueOf(writer.nextValue++ & 1023));
+    }
+}
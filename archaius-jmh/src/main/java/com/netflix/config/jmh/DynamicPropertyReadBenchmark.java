@@ -0,0 +1,140 @@
+/**
+ * Copyright 2014 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.config.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.AbstractConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.netflix.config.CachedDynamicBooleanProperty;
+import com.netflix.config.CachedDynamicDoubleProperty;
+import com.netflix.config.CachedDynamicIntProperty;
+import com.netflix.config.CachedDynamicLongProperty;
+import com.netflix.config.ConfigurationManager;
+import com.netflix.config.DynamicBooleanProperty;
+import com.netflix.config.DynamicDoubleProperty;
+import com.netflix.config.DynamicIntProperty;
+import com.netflix.config.DynamicLongProperty;
+import com.netflix.config.DynamicStringProperty;
+
+/**
+ * Single threaded reads of typed properties, comparing the {@link com.netflix.config.PropertyWrapper}
+ * subclasses with their cached counterparts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DynamicPropertyReadBenchmark {
+
+    private DynamicStringProperty stringProperty;
+    private DynamicIntProperty intProperty;
+    private DynamicLongProperty longProperty;
+    private DynamicDoubleProperty doubleProperty;
+    private DynamicBooleanProperty booleanProperty;
+    private CachedDynamicIntProperty cachedIntProperty;
+    private CachedDynamicLongProperty cachedLongProperty;
+    private CachedDynamicDoubleProperty cachedDoubleProperty;
+    private CachedDynamicBooleanProperty cachedBooleanProperty;
+    private DynamicIntProperty missingIntProperty;
+
+    @Setup
+    public void setUp() {
+        AbstractConfiguration config = ConfigurationManager.getConfigInstance();
+        config.setProperty("benchmark.string", "value");
+        config.setProperty("benchmark.int", "42");
+        config.setProperty("benchmark.long", "42");
+        config.setProperty("benchmark.double", "4.2");
+        config.setProperty("benchmark.boolean", "true");
+        stringProperty = new DynamicStringProperty("benchmark.string", null);
+        intProperty = new DynamicIntProperty("benchmark.int", 0);
+        longProperty = new DynamicLongProperty("benchmark.long", 0);
+        doubleProperty = new DynamicDoubleProperty("benchmark.double", 0);
+        booleanProperty = new DynamicBooleanProperty("benchmark.boolean", false);
+        cachedIntProperty = new CachedDynamicIntProperty("benchmark.int", 0);
+        cachedLongProperty = new CachedDynamicLongProperty("benchmark.long", 0);
+        cachedDoubleProperty = new CachedDynamicDoubleProperty("benchmark.double", 0);
+        cachedBooleanProperty = new CachedDynamicBooleanProperty("benchmark.boolean", false);
+        missingIntProperty = new DynamicIntProperty("benchmark.missing", 0);
+    }
+
+    @Benchmark
+    public String stringProperty() {
+        return stringProperty.get();
+    }
+
+    @Benchmark
+    public int intProperty() {
+        return intProperty.get();
+    }
+
+    @Benchmark
+    public Integer intPropertyBoxed() {
+        return intProperty.getValue();
+    }
+
+    @Benchmark
+    public int cachedIntProperty() {
+        return cachedIntProperty.get();
+    }
+
+    @Benchmark
+    public int missingIntProperty() {
+        return missingIntProperty.get();
+    }
+
+    @Benchmark
+    public long longProperty() {
+        return longProperty.get();
+    }
+
+    @Benchmark
+    public long cachedLongProperty() {
+        return cachedLongProperty.get();
+    }
+
+    @Benchmark
+    public double doubleProperty() {
+        return doubleProperty.get();
+    }
+
+    @Benchmark
+    public double cachedDoubleProperty() {
+        return cachedDoubleProperty.get();
+    }
+
+    @Benchmark
+    public boolean booleanProperty() {
+        return booleanProperty.get();
+    }
+
+    @Benchmark
+    public boolean cachedBooleanProperty() {
+        return cachedBooleanProperty.get();
+    }
+}
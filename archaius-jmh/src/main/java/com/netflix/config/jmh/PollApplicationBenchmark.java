@@ -0,0 +1,138 @@
+/**
+ * Copyright 2014 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.netflix.config.jmh;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.netflix.config.AbstractPollingScheduler;
+import com.netflix.config.ConcurrentMapConfiguration;
+import com.netflix.config.DynamicPropertyUpdater;
+import com.netflix.config.PollResult;
+
+/**
+ * Application of poll results to a configuration of a varying size. Each changing benchmark alternates
+ * the value of one property between invocations, so that every invocation applies exactly one change.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PollApplicationBenchmark {
+
+    /**
+     * Exposes the way the scheduler applies results, without scheduling anything.
+     */
+    private static class ApplyingScheduler extends AbstractPollingScheduler {
+        void apply(PollResult result, Configuration config) {
+            populateProperties(result, config);
+        }
+
+        @Override
+        protected void schedule(Runnable pollingRunnable) {
+        }
+
+        @Override
+        public void stop() {
+        }
+    }
+
+    @Param({"100", "10000"})
+    private int properties;
+
+    private final DynamicPropertyUpdater updater = new DynamicPropertyUpdater();
+    private ApplyingScheduler scheduler;
+    private ConcurrentMapConfiguration schedulerConfig;
+    private ConcurrentMapConfiguration updaterConfig;
+    private PollResult[] fullResults;
+    private PollResult[] incrementalResults;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Map<String, Object> content = new HashMap<String, Object>();
+        for (int i = 0; i < properties; i++) {
+            content.put("poll.key" + i, "value" + i);
+        }
+        Map<String, Object> changedContent = new HashMap<String, Object>(content);
+        changedContent.put("poll.key0", "changed");
+        fullResults = new PollResult[] {PollResult.createFull(content), PollResult.createFull(changedContent)};
+        incrementalResults = new PollResult[] {
+                PollResult.createIncremental(null, singleton("poll.key0", "value0"), null, null),
+                PollResult.createIncremental(null, singleton("poll.key0", "changed"), null, null)};
+        scheduler = new ApplyingScheduler();
+        schedulerConfig = new ConcurrentMapConfiguration();
+        scheduler.apply(fullResults[0], schedulerConfig);
+        updaterConfig = new ConcurrentMapConfiguration();
+        updater.updateProperties(fullResults[0], updaterConfig, false);
+    }
+
+    private static Map<String, Object> singleton(String key, Object value) {
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put(key, value);
+        return map;
+    }
+
+    private int nextIndex() {
+        next ^= 1;
+        return next;
+    }
+
+    /**
+     * A full result identical to the one applied last.
+     */
+    @Benchmark
+    public void unchangedFullResult() {
+        scheduler.apply(fullResults[0], schedulerConfig);
+    }
+
+    /**
+     * Full results applied by the scheduler, which only applies the difference to the last result.
+     */
+    @Benchmark
+    public void changedFullResult() {
+        scheduler.apply(fullResults[nextIndex()], schedulerConfig);
+    }
+
+    /**
+     * Full results reconciled with the whole configuration.
+     */
+    @Benchmark
+    public void changedFullResultWithoutSnapshot() {
+        updater.updateProperties(fullResults[nextIndex()], updaterConfig, false);
+    }
+
+    @Benchmark
+    public void changedIncrementalResult() {
+        updater.updateProperties(incrementalResults[nextIndex()], updaterConfig, false);
+    }
+}